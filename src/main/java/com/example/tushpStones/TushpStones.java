@@ -3,9 +3,15 @@ package com.example.tushpStones;
 import com.example.tushpStones.commands.PSCommand;
 import com.example.tushpStones.listeners.BlockListener;
 import com.example.tushpStones.listeners.ExplosionListener;
+import com.example.tushpStones.listeners.HologramListener;
 import com.example.tushpStones.listeners.PlayerMoveListener;
 import com.example.tushpStones.managers.ConfigManager;
 import com.example.tushpStones.managers.TushpRegionManager;
+import com.example.tushpStones.utils.ParticleVisualizer;
+import com.example.tushpStones.utils.TaskScheduler;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -14,9 +20,11 @@ import org.bukkit.plugin.java.JavaPlugin;
 public final class TushpStones extends JavaPlugin implements Listener {
 
     private static TushpStones instance;
+    private TaskScheduler taskScheduler;
     private ConfigManager configManager;
     private TushpRegionManager tushpRegionManager;
     private PlayerMoveListener playerMoveListener;
+    private ParticleVisualizer particleVisualizer;
 
     @Override
     public void onEnable() {
@@ -30,16 +38,25 @@ public final class TushpStones extends JavaPlugin implements Listener {
         }
 
         // Инициализация менеджеров
+        this.taskScheduler = new TaskScheduler(this);
         this.configManager = new ConfigManager(this);
         this.tushpRegionManager = new TushpRegionManager(this);
+        this.particleVisualizer = new ParticleVisualizer(configManager, taskScheduler);
+
+        if (TaskScheduler.isFolia()) {
+            getLogger().info("Обнаружена Folia: задачи выполняются в потоках областей мира");
+            getLogger().info("Для работы на Folia нужны сборки WorldGuard и WorldEdit с поддержкой Folia");
+        }
 
         // Загрузка конфигураций
         configManager.loadConfigs();
         tushpRegionManager.loadRegions();
+        tushpRegionManager.startAutoSave();
 
         // Регистрация событий
         getServer().getPluginManager().registerEvents(new BlockListener(this), this);
         getServer().getPluginManager().registerEvents(new ExplosionListener(this), this);
+        getServer().getPluginManager().registerEvents(new HologramListener(this), this);
 
         // Регистрация слушателя движения для уведомлений о входе/выходе
         this.playerMoveListener = new PlayerMoveListener(this);
@@ -60,9 +77,13 @@ public final class TushpStones extends JavaPlugin implements Listener {
 
     @Override
     public void onDisable() {
+        if (particleVisualizer != null) {
+            particleVisualizer.shutdown();
+        }
+
         // Сохранение всех данных
         if (tushpRegionManager != null) {
-            tushpRegionManager.saveRegions();
+            tushpRegionManager.shutdown();
             getLogger().info("Все регионы сохранены!");
         }
 
@@ -70,13 +91,39 @@ public final class TushpStones extends JavaPlugin implements Listener {
     }
 
     /**
-     * Обработка выхода игрока - очистка кэша
+     * Обработка выхода игрока - очистка состояния и кэша
      */
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         if (playerMoveListener != null) {
             playerMoveListener.removePlayer(event.getPlayer().getUniqueId());
         }
+        tushpRegionManager.getLimitCache().invalidate(event.getPlayer().getUniqueId());
+        tushpRegionManager.getHologramVisibility().remove(event.getPlayer().getUniqueId());
+        particleVisualizer.cancel(event.getPlayer());
+    }
+
+    /**
+     * Вход игрока - создание состояния отслеживания движения,
+     * лимит регионов будет вычислен заново при первой установке блока
+     */
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        if (playerMoveListener != null) {
+            playerMoveListener.addPlayer(event.getPlayer().getUniqueId());
+        }
+        tushpRegionManager.getLimitCache().invalidate(event.getPlayer().getUniqueId());
+        tushpRegionManager.getNameCache().warm(event.getPlayer());
+        tushpRegionManager.getHologramVisibility().refresh(event.getPlayer());
+    }
+
+    /**
+     * Смена мира - права могут зависеть от мира, голограммы другие
+     */
+    @EventHandler
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        tushpRegionManager.getLimitCache().invalidate(event.getPlayer().getUniqueId());
+        tushpRegionManager.getHologramVisibility().refresh(event.getPlayer());
     }
 
     /**
@@ -91,11 +138,25 @@ public final class TushpStones extends JavaPlugin implements Listener {
         }
     }
 
+    /**
+     * config.yml из текущего снимка настроек (после /ps reload - уже новый),
+     * до загрузки снимка - стандартный конфиг плагина
+     */
+    @Override
+    public FileConfiguration getConfig() {
+        FileConfiguration config = configManager != null ? configManager.getConfig() : null;
+        return config != null ? config : super.getConfig();
+    }
+
     // Геттеры
     public static TushpStones getInstance() {
         return instance;
     }
 
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+
     public ConfigManager getConfigManager() {
         return configManager;
     }
@@ -103,4 +164,8 @@ public final class TushpStones extends JavaPlugin implements Listener {
     public TushpRegionManager getRegionManager() {
         return tushpRegionManager;
     }
+
+    public ParticleVisualizer getVisualizer() {
+        return particleVisualizer;
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.tushpStones.commands;
 
 import com.example.tushpStones.TushpStones;
 import com.example.tushpStones.models.ProtectedRegion;
+import com.example.tushpStones.storage.RegionChange;
 import com.example.tushpStones.utils.ParticleVisualizer;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -25,7 +26,7 @@ public class PSCommand implements CommandExecutor, TabCompleter {
 
     public PSCommand(TushpStones plugin) {
         this.plugin = plugin;
-        this.visualizer = new ParticleVisualizer(plugin);
+        this.visualizer = plugin.getVisualizer();
     }
 
     @Override
@@ -81,6 +82,9 @@ public class PSCommand implements CommandExecutor, TabCompleter {
             case "reload":
                 handleReload(player);
                 break;
+            case "export":
+                handleExport(player);
+                break;
             default:
                 player.sendMessage(ChatColor.RED + "Неизвестная команда! Используйте /ps для помощи.");
         }
@@ -108,7 +112,7 @@ public class PSCommand implements CommandExecutor, TabCompleter {
         player.sendMessage(ChatColor.GOLD + "╠════════════════════════════╣");
         player.sendMessage(ChatColor.GOLD + "║ " + ChatColor.YELLOW + "ID: " + ChatColor.WHITE + region.getId() + ChatColor.GOLD + "");
         player.sendMessage(ChatColor.GOLD + "║ " + ChatColor.YELLOW + "Владелец: " + ChatColor.WHITE + 
-            Bukkit.getOfflinePlayer(region.getOwner()).getName());
+            plugin.getRegionManager().getNameCache().getName(region.getOwner()));
         player.sendMessage(ChatColor.GOLD + "║ " + ChatColor.YELLOW + "Радиус: " + ChatColor.WHITE + region.getRadius());
         player.sendMessage(ChatColor.GOLD + "║ " + ChatColor.YELLOW + "Тип блока: " + ChatColor.WHITE + region.getBlockType());
         player.sendMessage(ChatColor.GOLD + "║ " + ChatColor.YELLOW + "Приоритет: " + ChatColor.WHITE + region.getPriority());
@@ -158,7 +162,7 @@ public class PSCommand implements CommandExecutor, TabCompleter {
         }
 
         region.addMember(target.getUniqueId());
-        plugin.getRegionManager().saveRegions();
+        plugin.getRegionManager().markDirty(region, RegionChange.MEMBERS);
         
         player.sendMessage(ChatColor.GREEN + "Игрок " + target.getName() + " добавлен в регион!");
         target.sendMessage(ChatColor.GREEN + "Вас добавили в регион " + region.getId() + "!");
@@ -196,7 +200,7 @@ public class PSCommand implements CommandExecutor, TabCompleter {
         }
 
         region.removeMember(target.getUniqueId());
-        plugin.getRegionManager().saveRegions();
+        plugin.getRegionManager().markDirty(region, RegionChange.MEMBERS);
         
         player.sendMessage(ChatColor.GREEN + "Игрок " + target.getName() + " удален из региона!");
     }
@@ -233,7 +237,7 @@ public class PSCommand implements CommandExecutor, TabCompleter {
         }
 
         region.addCoOwner(target.getUniqueId());
-        plugin.getRegionManager().saveRegions();
+        plugin.getRegionManager().markDirty(region, RegionChange.CO_OWNERS);
         
         player.sendMessage(ChatColor.GREEN + "Игрок " + target.getName() + " добавлен как совладелец!");
         target.sendMessage(ChatColor.GREEN + "Вас сделали совладельцем региона " + region.getId() + "!");
@@ -271,7 +275,7 @@ public class PSCommand implements CommandExecutor, TabCompleter {
         }
 
         region.removeCoOwner(target.getUniqueId());
-        plugin.getRegionManager().saveRegions();
+        plugin.getRegionManager().markDirty(region, RegionChange.CO_OWNERS);
         
         player.sendMessage(ChatColor.GREEN + "Игрок " + target.getName() + " удален из совладельцев!");
     }
@@ -298,7 +302,7 @@ public class PSCommand implements CommandExecutor, TabCompleter {
 
         region.setHidden(true);
         region.getLocation().getBlock().setType(org.bukkit.Material.AIR);
-        plugin.getRegionManager().saveRegions();
+        plugin.getRegionManager().markDirty(region, RegionChange.HIDDEN);
         
         player.sendMessage(ChatColor.GREEN + "Блок привата скрыт!");
     }
@@ -325,7 +329,7 @@ public class PSCommand implements CommandExecutor, TabCompleter {
 
         region.setHidden(false);
         // Восстановление блока (нужно получить тип из конфига)
-        plugin.getRegionManager().saveRegions();
+        plugin.getRegionManager().markDirty(region, RegionChange.HIDDEN);
         
         player.sendMessage(ChatColor.GREEN + "Блок привата восстановлен!");
     }
@@ -362,7 +366,7 @@ public class PSCommand implements CommandExecutor, TabCompleter {
         }
 
         ProtectedRegion region = regions.get(index);
-        player.teleport(region.getLocation());
+        player.teleportAsync(region.getLocation());
         player.sendMessage(ChatColor.GREEN + "Вы телепортированы в регион " + region.getId() + "!");
     }
 
@@ -456,8 +460,27 @@ public class PSCommand implements CommandExecutor, TabCompleter {
             return;
         }
 
-        plugin.getConfigManager().reload();
-        player.sendMessage(ChatColor.GREEN + "Конфигурация перезагружена!");
+        plugin.getConfigManager().reload(() -> {
+            plugin.getRegionManager().getLimitCache().clear();
+            plugin.getRegionManager().reloadHolograms();
+
+            if (player.isOnline()) {
+                player.sendMessage(ChatColor.GREEN + "Конфигурация перезагружена!");
+            }
+        });
+    }
+
+    /**
+     * Выгрузить регионы в regions.yml (например, из бинарного хранилища)
+     */
+    private void handleExport(Player player) {
+        if (!player.hasPermission("tushpstones.admin")) {
+            player.sendMessage(ChatColor.RED + "У вас нет прав на использование этой команды!");
+            return;
+        }
+
+        int exported = plugin.getRegionManager().exportRegions();
+        player.sendMessage(ChatColor.GREEN + "Выгружено регионов в regions.yml: " + exported);
     }
 
     /**
@@ -478,6 +501,9 @@ public class PSCommand implements CommandExecutor, TabCompleter {
         player.sendMessage(ChatColor.YELLOW + "/ps home [номер]" + ChatColor.GRAY + " - Телепорт в регион");
         player.sendMessage(ChatColor.YELLOW + "/ps count" + ChatColor.GRAY + " - Количество регионов");
         player.sendMessage(ChatColor.YELLOW + "/ps list" + ChatColor.GRAY + " - Список регионов");
+        if (player.hasPermission("tushpstones.admin")) {
+            player.sendMessage(ChatColor.YELLOW + "/ps export" + ChatColor.GRAY + " - Выгрузить регионы в regions.yml");
+        }
         player.sendMessage(ChatColor.GOLD + "╚═══════════════════════════════╝");
     }
 
@@ -485,7 +511,7 @@ public class PSCommand implements CommandExecutor, TabCompleter {
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (args.length == 1) {
             return Arrays.asList("info", "view", "add", "remove", "addowner", "removeowner", 
-                "hide", "unhide", "home", "count", "list", "reload")
+                "hide", "unhide", "home", "count", "list", "reload", "export")
                 .stream()
                 .filter(s -> s.startsWith(args[0].toLowerCase()))
                 .collect(Collectors.toList());
@@ -1,10 +1,15 @@
 package com.example.tushpStones.listeners;
 
 import com.example.tushpStones.TushpStones;
+import com.example.tushpStones.managers.ConfigSnapshot;
+import com.example.tushpStones.managers.ConfigSnapshot.Message;
 import com.example.tushpStones.models.ProtectionBlock;
 import com.example.tushpStones.models.ProtectedRegion;
+import com.example.tushpStones.storage.RegionChange;
+import com.example.tushpStones.utils.MessageTemplate;
 import com.example.tushpStones.utils.ParticleVisualizer;
 import org.bukkit.ChatColor;
+import org.bukkit.Color;
 import org.bukkit.Material;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
@@ -30,7 +35,7 @@ public class BlockListener implements Listener {
 
     public BlockListener(TushpStones plugin) {
         this.plugin = plugin;
-        this.visualizer = new ParticleVisualizer(plugin);
+        this.visualizer = plugin.getVisualizer();
     }
 
     /**
@@ -99,9 +104,23 @@ public class BlockListener implements Listener {
         player.sendMessage(ChatColor.GREEN + "╚════════════════════════════╝");
 
         // 🎨 ВИЗУАЛИЗАЦИЯ ГРАНИЦ ЧАСТИЦАМИ!
-        if (plugin.getConfig().getBoolean("show-particles-on-creation", true)) {
+        ConfigSnapshot settings = plugin.getConfigManager().getSnapshot();
+        if (settings.isShowParticlesOnCreation()) {
             player.sendMessage(ChatColor.GRAY + "» " + ChatColor.YELLOW + "Границы региона отображаются частицами...");
             visualizer.showCreationAnimation(block.getLocation(), protectionBlock.getRadius(), player);
+
+            // Игроки рядом тоже видят границы нового региона
+            int visibleDistance = settings.getParticlesVisibleDistance();
+            if (visibleDistance > 0) {
+                visualizer.showRegionBordersToNearby(
+                        block.getLocation(),
+                        protectionBlock.getRadius(),
+                        visibleDistance,
+                        player,
+                        settings.getBorderDisplayDuration(),
+                        Color.fromRGB(0, 255, 0)
+                );
+            }
         }
     }
 
@@ -113,8 +132,8 @@ public class BlockListener implements Listener {
         Player player = event.getPlayer();
         Block block = event.getBlock();
 
-        // Получаем регион в этой локации
-        ProtectedRegion region = plugin.getRegionManager().getRegionAtLocation(block.getLocation());
+        // Регион, центром которого является блок (обычные блоки отсекаются здесь)
+        ProtectedRegion region = plugin.getRegionManager().getRegionByCenter(block);
         if (region == null) {
             return;
         }
@@ -125,11 +144,6 @@ public class BlockListener implements Listener {
             return;
         }
 
-        // Проверка, центр ли это региона
-        if (!isCenterBlock(block.getLocation(), region.getLocation())) {
-            return;
-        }
-
         // Проверка прав на удаление
         if (!player.hasPermission("tushpstones.destroy")) {
             event.setCancelled(true);
@@ -189,19 +203,14 @@ public class BlockListener implements Listener {
             return;
         }
 
-        // Проверяем что это блок привата
-        if (!plugin.getConfigManager().isProtectionBlock(block.getType())) {
-            return;
-        }
-
-        // Получаем регион
-        ProtectedRegion region = plugin.getRegionManager().getRegionAtLocation(block.getLocation());
+        // Получаем регион, центральный блок которого кликнули
+        ProtectedRegion region = plugin.getRegionManager().getRegionByCenter(block);
         if (region == null) {
             return;
         }
 
-        // Проверяем что кликнули по центральному блоку
-        if (!isCenterBlock(block.getLocation(), region.getLocation())) {
+        // Проверяем что это блок привата
+        if (!plugin.getConfigManager().isProtectionBlock(block.getType())) {
             return;
         }
 
@@ -214,16 +223,14 @@ public class BlockListener implements Listener {
 
         // Проверяем что система прочности включена
         if (!region.isHealthEnabled()) {
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&',
-                    plugin.getConfig().getString("messages.not-upgradeable", "&cЭтот регион нельзя улучшить!")));
+            player.sendMessage(plugin.getConfigManager().getSnapshot().getMessage(Message.NOT_UPGRADEABLE).render());
             event.setCancelled(true);
             return;
         }
 
         // Проверяем что прочность не максимальна
         if (!region.canUpgrade()) {
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&',
-                    plugin.getConfig().getString("messages.health-max", "&cПрочность уже максимальная!")));
+            player.sendMessage(plugin.getConfigManager().getSnapshot().getMessage(Message.HEALTH_MAX).render());
             event.setCancelled(true);
             return;
         }
@@ -243,9 +250,8 @@ public class BlockListener implements Listener {
         // Проверяем что это правильный предмет для улучшения
         if (!protectionBlock.isValidUpgradeItem(itemInHand.getType())) {
             String upgradeItemName = protectionBlock.getUpgradeItem().name().toLowerCase().replace("_", " ");
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&',
-                    plugin.getConfig().getString("messages.wrong-upgrade-item", "&cДля улучшения нужен: &6{item}")
-                            .replace("{item}", upgradeItemName)));
+            player.sendMessage(plugin.getConfigManager().getSnapshot().getMessage(Message.WRONG_UPGRADE_ITEM)
+                    .render(new MessageTemplate.Args().item(upgradeItemName)));
             event.setCancelled(true);
             return;
         }
@@ -270,29 +276,17 @@ public class BlockListener implements Listener {
             plugin.getRegionManager().updateHologram(region.getId());
 
             // Сохраняем изменения
-            plugin.getRegionManager().saveRegions();
+            plugin.getRegionManager().markDirty(region, RegionChange.HEALTH);
 
             // Эффекты улучшения
             player.spawnParticle(Particle.HAPPY_VILLAGER, block.getLocation().add(0.5, 1.5, 0.5), 10, 0.3, 0.3, 0.3, 0);
             player.playSound(player.getLocation(), Sound.ENTITY_PLAYER_LEVELUP, 1.0f, 1.5f);
 
             // Сообщение об успехе
-            String message = ChatColor.translateAlternateColorCodes('&',
-                    plugin.getConfig().getString("messages.health-upgraded", "&a✓ Прочность улучшена! &7[&6{current}&7/&6{max}&7]")
-                            .replace("{current}", String.valueOf(region.getCurrentHealth()))
-                            .replace("{max}", String.valueOf(region.getMaxHealth())));
-            player.sendMessage(message);
+            player.sendMessage(plugin.getConfigManager().getSnapshot().getMessage(Message.HEALTH_UPGRADED)
+                    .render(new MessageTemplate.Args().health(region.getCurrentHealth(), region.getMaxHealth())));
         }
 
         event.setCancelled(true);
     }
-
-    /**
-     * Проверка, является ли блок центром региона
-     */
-    private boolean isCenterBlock(org.bukkit.Location blockLoc, org.bukkit.Location regionLoc) {
-        return blockLoc.getBlockX() == regionLoc.getBlockX() &&
-                blockLoc.getBlockY() == regionLoc.getBlockY() &&
-                blockLoc.getBlockZ() == regionLoc.getBlockZ();
-    }
 }
\ No newline at end of file
@@ -1,9 +1,17 @@
 package com.example.tushpStones.listeners;
 
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
 import com.example.tushpStones.TushpStones;
+import com.example.tushpStones.managers.ConfigSnapshot;
+import com.example.tushpStones.managers.ConfigSnapshot.Message;
+import com.example.tushpStones.managers.RegionSnapshot;
 import com.example.tushpStones.models.ProtectionBlock;
 import com.example.tushpStones.models.ProtectedRegion;
+import com.example.tushpStones.storage.RegionChange;
+import com.example.tushpStones.utils.LongObjectMap;
+import com.example.tushpStones.utils.MessageTemplate;
 import com.example.tushpStones.utils.ParticleVisualizer;
+import com.example.tushpStones.utils.TaskScheduler;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
@@ -18,24 +26,36 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityExplodeEvent;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Обработчик взрывов - управляет разрушением приватов динамитом
- * Система прочности: взрывы наносят урон вместо мгновенного удаления
+ * Система прочности: взрывы наносят урон вместо мгновенного удаления,
+ * урон за тик суммируется и применяется в конце тика
+ * (на Folia - задачей области центра региона в следующем тике)
  */
 public class ExplosionListener implements Listener {
 
     private final TushpStones plugin;
     private final ParticleVisualizer visualizer;
 
+    // Урон по регионам за текущий тик (запись региона изменяет только поток его центра)
+    private final Map<ProtectedRegion, PendingDamage> pendingDamage = new ConcurrentHashMap<>();
+
     public ExplosionListener(TushpStones plugin) {
         this.plugin = plugin;
-        this.visualizer = new ParticleVisualizer(plugin);
+        this.visualizer = plugin.getVisualizer();
     }
 
     /**
      * Обработка взрывов
+     * 1. Регионы, центр которых попал в границы взрыва, берутся из индекса одним запросом
+     * 2. Если таких нет - взрыв не касается приватов (обычный случай)
+     * 3. Иначе список блоков проходится один раз, и обрабатываются только центры этих регионов
      */
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onEntityExplode(EntityExplodeEvent event) {
@@ -45,26 +65,46 @@ public class ExplosionListener implements Listener {
             return; // Не взрывчатка
         }
 
-        Location explosionLocation = event.getLocation();
-        Iterator<Block> blockIterator = event.blockList().iterator();
+        List<Block> blocks = event.blockList();
+        if (blocks.isEmpty()) {
+            return;
+        }
 
-        while (blockIterator.hasNext()) {
-            Block block = blockIterator.next();
+        // Границы взрыва
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = 0, size = blocks.size(); i < size; i++) {
+            Block block = blocks.get(i);
+            minX = Math.min(minX, block.getX());
+            minY = Math.min(minY, block.getY());
+            minZ = Math.min(minZ, block.getZ());
+            maxX = Math.max(maxX, block.getX());
+            maxY = Math.max(maxY, block.getY());
+            maxZ = Math.max(maxZ, block.getZ());
+        }
 
-            // Проверяем, является ли блок защитным
-            if (!plugin.getConfigManager().isProtectionBlock(block.getType())) {
-                continue;
-            }
+        List<ProtectedRegion> affected = plugin.getRegionManager().getSnapshot()
+                .getRegionsWithCenterIn(event.getLocation().getWorld(), minX, minY, minZ, maxX, maxY, maxZ);
+        if (affected.isEmpty()) {
+            return; // В зоне взрыва нет центров регионов
+        }
 
-            // Получаем регион
-            ProtectedRegion region = plugin.getRegionManager().getRegionAtLocation(block.getLocation());
-            if (region == null) {
-                continue;
-            }
+        // Центральные блоки затронутых регионов
+        LongObjectMap<ProtectedRegion> centers = new LongObjectMap<>(affected.size());
+        for (ProtectedRegion region : affected) {
+            Location center = region.getLocation();
+            centers.put(RegionSnapshot.blockKey(center.getBlockX(), center.getBlockY(), center.getBlockZ()), region);
+        }
 
-            // Проверяем, центральный ли это блок региона
-            if (!isCenterBlock(block.getLocation(), region.getLocation())) {
-                continue;
+        Player bomber = getTNTPlacer(event);
+        Iterator<Block> blockIterator = blocks.iterator();
+
+        while (blockIterator.hasNext() && !centers.isEmpty()) {
+            Block block = blockIterator.next();
+
+            ProtectedRegion region = centers.remove(RegionSnapshot.blockKey(block.getX(), block.getY(), block.getZ()));
+            if (region == null) {
+                continue; // Обычный блок - взрывается как есть
             }
 
             // Получаем конфиг блока привата
@@ -79,8 +119,7 @@ public class ExplosionListener implements Listener {
                 blockIterator.remove();
 
                 // Опциональное сообщение (если взорвал игрок)
-                Player bomber = getTNTPlacer(event);
-                if (bomber != null && plugin.getConfig().getBoolean("explosion-messages", true)) {
+                if (bomber != null && plugin.getConfigManager().getSnapshot().isExplosionMessages()) {
                     bomber.sendMessage(ChatColor.RED + "⚠ Этот приват защищен от " +
                             explosiveType.name().toLowerCase().replace("_", " ") + "!");
                 }
@@ -93,29 +132,23 @@ public class ExplosionListener implements Listener {
             // НОВАЯ СИСТЕМА: Наносим урон вместо мгновенного удаления
             // ═══════════════════════════════════════════════════════════
 
-            Player bomber = getTNTPlacer(event);
-
             // Если включена система прочности - наносим урон
             if (region.isHealthEnabled()) {
-                int explosionDamage = protectionBlock.getExplosionDamage(explosiveType);
-                boolean isDestroyed = region.damage(explosionDamage);
-
-                // Обновляем голограмму
-                plugin.getRegionManager().updateHologram(region.getId());
-
-                // Сохраняем изменения
-                plugin.getRegionManager().saveRegions();
-
-                // Уведомляем о повреждении
-                notifyRegionDamaged(region, bomber, explosionDamage);
+                // Урон копится до конца тика (залп пушки - один расчет на регион)
+                PendingDamage pending = pendingDamage.get(region);
+                if (pending == null) {
+                    pending = new PendingDamage(block);
+                    pendingDamage.put(region, pending);
+
+                    // На Folia нет общего конца тика: урон применит задача области центра
+                    if (TaskScheduler.isFolia()) {
+                        plugin.getTaskScheduler().runAtLater(region.getLocation(), () -> applyDamage(region), 1L);
+                    }
+                }
+                pending.add(protectionBlock.getExplosionDamage(explosiveType), bomber, explosiveType);
 
                 // Удаляем блок из списка разрушаемых (мы контролируем разрушение сами)
                 blockIterator.remove();
-
-                // Если регион уничтожен
-                if (isDestroyed) {
-                    destroyRegion(region, bomber, explosiveType, block);
-                }
             } else {
                 // Старая система: мгновенное удаление
                 boolean removed = plugin.getRegionManager().removeRegion(region.getId());
@@ -127,6 +160,50 @@ public class ExplosionListener implements Listener {
         }
     }
 
+    /**
+     * Конец тика - применяем накопленный урон: по одному обновлению голограммы,
+     * сохранению, уведомлению и проверке разрушения на регион
+     */
+    @EventHandler
+    public void onServerTickEnd(ServerTickEndEvent event) {
+        if (pendingDamage.isEmpty() || TaskScheduler.isFolia()) return;
+
+        for (ProtectedRegion region : new ArrayList<>(pendingDamage.keySet())) {
+            applyDamage(region);
+        }
+    }
+
+    /**
+     * Применить накопленный урон по региону
+     */
+    private void applyDamage(ProtectedRegion region) {
+        PendingDamage pending = pendingDamage.remove(region);
+        if (pending == null) return;
+
+        // Регион могли удалить в этом же тике
+        if (plugin.getRegionManager().getRegion(region.getId()) != region) {
+            return;
+        }
+
+        boolean isDestroyed = region.damage(pending.damage);
+
+        // Обновляем голограмму
+        plugin.getRegionManager().updateHologram(region.getId());
+
+        // Сохраняем изменения
+        plugin.getRegionManager().markDirty(region, RegionChange.HEALTH);
+
+        Player bomber = pending.bomber != null && pending.bomber.isOnline() ? pending.bomber : null;
+
+        // Уведомляем о повреждении
+        notifyRegionDamaged(region, bomber, pending.damage);
+
+        // Если регион уничтожен
+        if (isDestroyed) {
+            destroyRegion(region, bomber, pending.explosiveType, pending.block);
+        }
+    }
+
     /**
      * Обработать уничтожение региона (новая система с прочностью)
      */
@@ -139,7 +216,7 @@ public class ExplosionListener implements Listener {
             block.breakNaturally();
 
             // 🎨 АНИМАЦИЯ РАЗРУШЕНИЯ
-            if (plugin.getConfig().getBoolean("show-particles-on-destruction", true)) {
+            if (plugin.getConfigManager().getSnapshot().isShowParticlesOnDestruction()) {
                 visualizer.showDestructionAnimation(
                         region.getLocation(),
                         region.getRadius(),
@@ -173,7 +250,7 @@ public class ExplosionListener implements Listener {
      */
     private void handleRegionDestruction(ProtectedRegion region, Player bomber, Material explosiveType) {
         // 🎨 АНИМАЦИЯ РАЗРУШЕНИЯ
-        if (plugin.getConfig().getBoolean("show-particles-on-destruction", true)) {
+        if (plugin.getConfigManager().getSnapshot().isShowParticlesOnDestruction()) {
             visualizer.showDestructionAnimation(
                     region.getLocation(),
                     region.getRadius(),
@@ -203,7 +280,7 @@ public class ExplosionListener implements Listener {
      */
     private void sendRegionDestroyedMessage(Player owner, ProtectedRegion region, Material explosiveType) {
         owner.sendMessage(ChatColor.RED + "═══════════════════════════════");
-        owner.sendMessage(ChatColor.DARK_RED + "✖ ВАШ РЕГИОН УНИЧТОЖЕН!");
+        owner.sendMessage(plugin.getConfigManager().getSnapshot().getMessage(Message.REGION_DESTROYED).render());
         owner.sendMessage(ChatColor.RED + "Регион: " + ChatColor.YELLOW + region.getId());
         owner.sendMessage(ChatColor.RED + "Тип взрыва: " + ChatColor.YELLOW +
                 explosiveType.name().toLowerCase().replace("_", " "));
@@ -218,14 +295,14 @@ public class ExplosionListener implements Listener {
      */
     private void notifyRegionDamaged(ProtectedRegion region, Player bomber, int damage) {
         try {
+            ConfigSnapshot settings = plugin.getConfigManager().getSnapshot();
+            MessageTemplate.Args args = new MessageTemplate.Args()
+                    .health(region.getCurrentHealth(), region.getMaxHealth());
+
             // Уведомление владельца
             Player owner = plugin.getServer().getPlayer(region.getOwner());
             if (owner != null && owner.isOnline()) {
-                String message = ChatColor.translateAlternateColorCodes('&',
-                        "&c⚠ Регион получил урон! &7[&4" + region.getCurrentHealth() +
-                                "&c/&6" + region.getMaxHealth() + "&7]"
-                );
-                owner.sendActionBar(message);
+                owner.sendActionBar(settings.getMessage(Message.REGION_DAMAGED).render(args));
 
                 // Звук предупреждения если здоровье низкое
                 if (region.getHealthPercentage() < 30) {
@@ -235,11 +312,7 @@ public class ExplosionListener implements Listener {
 
             // Уведомление взорвавшего
             if (bomber != null) {
-                String message = ChatColor.translateAlternateColorCodes('&',
-                        "&a✓ Урон нанесен! &7[&6" + region.getCurrentHealth() +
-                                "&7/&6" + region.getMaxHealth() + "&7]"
-                );
-                bomber.sendActionBar(message);
+                bomber.sendActionBar(settings.getMessage(Message.DAMAGE_DEALT).render(args));
             }
 
         } catch (Exception e) {
@@ -285,11 +358,25 @@ public class ExplosionListener implements Listener {
     }
 
     /**
-     * Проверка, является ли блок центром региона
+     * Урон по региону, накопленный за тик
      */
-    private boolean isCenterBlock(Location blockLoc, Location regionLoc) {
-        return blockLoc.getBlockX() == regionLoc.getBlockX() &&
-                blockLoc.getBlockY() == regionLoc.getBlockY() &&
-                blockLoc.getBlockZ() == regionLoc.getBlockZ();
+    private static final class PendingDamage {
+        final Block block;
+        int damage;
+        Player bomber;
+        Material explosiveType;
+
+        PendingDamage(Block block) {
+            this.block = block;
+        }
+
+        void add(int amount, Player bomber, Material explosiveType) {
+            damage += amount;
+            if (bomber != null) {
+                this.bomber = bomber;
+            }
+            // Тип последнего взрыва - для сообщения об уничтожении
+            this.explosiveType = explosiveType;
+        }
     }
 }
\ No newline at end of file
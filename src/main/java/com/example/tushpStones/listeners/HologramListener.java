@@ -0,0 +1,51 @@
+package com.example.tushpStones.listeners;
+
+import com.example.tushpStones.TushpStones;
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+
+/**
+ * Жизненный цикл голограмм по чанкам
+ * Голограмма существует, пока загружен чанк центра региона,
+ * поэтому число сущностей зависит от загруженных чанков, а не от числа регионов
+ */
+public class HologramListener implements Listener {
+
+    private final TushpStones plugin;
+
+    public HologramListener(TushpStones plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Загрузка чанка - создаем голограммы его регионов
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        Chunk chunk = event.getChunk();
+        plugin.getRegionManager().loadChunkHolograms(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Выгрузка чанка - удаляем голограммы его регионов
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        Chunk chunk = event.getChunk();
+        plugin.getRegionManager().unloadChunkHolograms(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Сущности чанка загружаются отдельно от блоков:
+     * здесь удаляются голограммы, сохраненные в мире старыми версиями или при сбое
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        plugin.getRegionManager().sweepHologramEntities(event.getEntities());
+    }
+}
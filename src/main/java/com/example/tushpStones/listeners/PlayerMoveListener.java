@@ -1,96 +1,124 @@
 package com.example.tushpStones.listeners;
 
 import com.example.tushpStones.TushpStones;
+import com.example.tushpStones.managers.ConfigSnapshot;
+import com.example.tushpStones.managers.ConfigSnapshot.Message;
+import com.example.tushpStones.managers.RegionSnapshot;
 import com.example.tushpStones.models.ProtectedRegion;
+import com.example.tushpStones.utils.MessageTemplate;
 import com.example.tushpStones.utils.ParticleVisualizer;
+import net.kyori.adventure.title.Title;
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
 import org.bukkit.Color;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerMoveEvent;
-import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Обработчик входа/выхода игроков из регионов
- * Оптимизирован: проверка раз в секунду
+ * Регион пересчитывается только при смене блока, а пока игрок остается
+ * внутри своего региона или в пустой области вокруг, поиск не выполняется.
+ * Поиск идет по снимку регионов, поэтому обработчик безопасен для потоков областей мира (Folia).
  */
 public class PlayerMoveListener implements Listener {
 
+    // Появление, показ и исчезновение title (10, 40 и 10 тиков)
+    private static final Title.Times TITLE_TIMES = Title.Times.times(
+            Duration.ofMillis(500), Duration.ofSeconds(2), Duration.ofMillis(500));
+
     private final TushpStones plugin;
     private final ParticleVisualizer visualizer;
 
-    // Кэш текущих регионов игроков
-    private final Map<UUID, ProtectedRegion> playerRegions = new HashMap<>();
-    // Кэш времени последней проверки
-    private final Map<UUID, Long> lastCheckTime = new HashMap<>();
-
-    // Интервал проверки в миллисекундах (1 секунда)
-    private static final long CHECK_INTERVAL = 1000;
+    // Состояние игроков: создается при входе и удаляется при выходе
+    // (сессию читает и изменяет только поток самого игрока)
+    private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
 
     public PlayerMoveListener(TushpStones plugin) {
         this.plugin = plugin;
-        this.visualizer = new ParticleVisualizer(plugin);
-        startCleanupTask();
+        this.visualizer = plugin.getVisualizer();
+
+        // Игроки, которые уже на сервере (перезагрузка плагина)
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            addPlayer(player.getUniqueId());
+        }
     }
 
     /**
      * Обработка движения игрока
-     * Проверка оптимизирована - выполняется раз в секунду
+     * Большинство событий (поворот головы, движение внутри блока) отсекаются
+     * сравнением координат блока
      */
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerMove(PlayerMoveEvent event) {
-        Player player = event.getPlayer();
-        UUID playerId = player.getUniqueId();
+        Location to = event.getTo();
+        if (to == null) return;
 
-        // Проверяем нужна ли проверка (раз в секунду)
-        long currentTime = System.currentTimeMillis();
-        Long lastCheck = lastCheckTime.get(playerId);
+        Player player = event.getPlayer();
+        Session session = sessions.get(player.getUniqueId());
+        if (session == null) return;
+
+        int x = to.getBlockX();
+        int y = to.getBlockY();
+        int z = to.getBlockZ();
+        World world = to.getWorld();
+        RegionSnapshot regions = plugin.getRegionManager().getSnapshot();
+        long version = regions.getVersion();
+
+        if (session.world == world && session.version == version) {
+            if (x == session.blockX && y == session.blockY && z == session.blockZ) {
+                return; // Игрок в том же блоке
+            }
 
-        if (lastCheck != null && (currentTime - lastCheck) < CHECK_INTERVAL) {
-            return; // Пропускаем, еще не прошла секунда
-        }
+            if (x >> 4 != session.blockX >> 4 || z >> 4 != session.blockZ >> 4) {
+                plugin.getRegionManager().getHologramVisibility().onChunkChange(player, to);
+            }
 
-        lastCheckTime.put(playerId, currentTime);
+            session.blockX = x;
+            session.blockY = y;
+            session.blockZ = z;
 
-        // Получаем текущий регион
-        Location to = event.getTo();
-        if (to == null) return;
+            if (session.isStillValid(x, y, z)) {
+                return; // Игрок все еще в том же регионе или в той же пустой области
+            }
+        } else {
+            session.world = world;
+            session.version = version;
+            session.blockX = x;
+            session.blockY = y;
+            session.blockZ = z;
+
+            plugin.getRegionManager().getHologramVisibility().onChunkChange(player, to);
+        }
 
-        ProtectedRegion currentRegion = plugin.getRegionManager().getRegionAtLocation(to);
-        ProtectedRegion previousRegion = playerRegions.get(playerId);
+        ProtectedRegion previousRegion = session.region;
+        ProtectedRegion currentRegion = session.update(regions, world, x, y, z);
 
-        // Проверяем изменение региона
-        if (currentRegion == null && previousRegion == null) {
-            return; // Игрок не в регионе и не был в регионе
+        if (currentRegion == previousRegion) {
+            return; // Игрок в том же регионе (или по-прежнему вне регионов)
         }
 
-        if (currentRegion != null && previousRegion != null &&
-                currentRegion.getId().equals(previousRegion.getId())) {
-            return; // Игрок в том же регионе
-        }
+        plugin.getRegionManager().getHologramVisibility()
+                .onRegionChange(player, to, previousRegion, currentRegion);
 
         // Игрок вышел из региона
-        if (previousRegion != null && (currentRegion == null ||
-                !currentRegion.getId().equals(previousRegion.getId()))) {
+        if (previousRegion != null) {
             handleRegionExit(player, previousRegion);
         }
 
         // Игрок вошел в новый регион
-        if (currentRegion != null && (previousRegion == null ||
-                !currentRegion.getId().equals(previousRegion.getId()))) {
+        if (currentRegion != null) {
             handleRegionEnter(player, currentRegion);
         }
-
-        // Обновляем кэш
-        playerRegions.put(playerId, currentRegion);
     }
 
     /**
@@ -98,42 +126,31 @@ public class PlayerMoveListener implements Listener {
      */
     private void handleRegionEnter(Player player, ProtectedRegion region) {
         try {
-            String ownerName = Bukkit.getOfflinePlayer(region.getOwner()).getName();
-            if (ownerName == null) ownerName = "Неизвестно";
+            ConfigSnapshot settings = plugin.getConfigManager().getSnapshot();
+            MessageTemplate.Args args = new MessageTemplate.Args()
+                    .owner(plugin.getRegionManager().getNameCache().getName(region.getOwner()));
 
             // Определяем цвет в зависимости от владельца
             boolean isOwner = region.isOwner(player.getUniqueId());
             boolean isMember = region.isMember(player.getUniqueId());
 
-            ChatColor regionColor;
-            if (isOwner) {
-                regionColor = ChatColor.GREEN;
-            } else if (isMember) {
-                regionColor = ChatColor.YELLOW;
-            } else {
-                regionColor = ChatColor.RED;
-            }
-
             // Отправляем ActionBar
-            String actionBarMessage = ChatColor.translateAlternateColorCodes('&',
-                    "&7» " + regionColor + "Вы вошли в регион &6" + ownerName
-            );
-            player.sendActionBar(actionBarMessage);
+            player.sendActionBar(settings.getMessage(Message.REGION_ENTER).render(args));
 
             // Отправляем Title (короткий)
-            String titleMessage = ChatColor.translateAlternateColorCodes('&',
-                    regionColor + "✖ " + ownerName + " ✖"
-            );
-            String subtitleMessage = ChatColor.translateAlternateColorCodes('&',
-                    isOwner ? "&aВаш регион" : (isMember ? "&eВы участник" : "&cЧужой регион")
-            );
-
-            if (plugin.getConfig().getBoolean("messages.show-titles", true)) {
-                player.sendTitle(titleMessage, subtitleMessage, 10, 40, 10);
+            if (settings.isShowTitles()) {
+                Message title = isOwner ? Message.TITLE_OWNER : (isMember ? Message.TITLE_MEMBER : Message.TITLE_FOREIGN);
+                Message subtitle = isOwner ? Message.SUBTITLE_OWNER : (isMember ? Message.SUBTITLE_MEMBER : Message.SUBTITLE_FOREIGN);
+
+                player.showTitle(Title.title(
+                        settings.getMessage(title).render(args),
+                        settings.getMessage(subtitle).render(args),
+                        TITLE_TIMES
+                ));
             }
 
             // Показываем границы частицами
-            if (plugin.getConfig().getBoolean("particles.show-on-enter", true)) {
+            if (settings.isShowParticlesOnEnter()) {
                 Color particleColor = isOwner ? Color.GREEN : (isMember ? Color.YELLOW : Color.RED);
                 visualizer.showRegionBordersWithColor(
                         region.getLocation(),
@@ -154,14 +171,12 @@ public class PlayerMoveListener implements Listener {
      */
     private void handleRegionExit(Player player, ProtectedRegion region) {
         try {
-            String ownerName = Bukkit.getOfflinePlayer(region.getOwner()).getName();
-            if (ownerName == null) ownerName = "Неизвестно";
+            MessageTemplate.Args args = new MessageTemplate.Args()
+                    .owner(plugin.getRegionManager().getNameCache().getName(region.getOwner()));
 
             // Отправляем ActionBar
-            String actionBarMessage = ChatColor.translateAlternateColorCodes('&',
-                    "&7» " + ChatColor.RED + "Вы вышли из региона &6" + ownerName
-            );
-            player.sendActionBar(actionBarMessage);
+            player.sendActionBar(plugin.getConfigManager().getSnapshot()
+                    .getMessage(Message.REGION_LEAVE).render(args));
 
         } catch (Exception e) {
             plugin.getLogger().warning("Ошибка при обработке выхода из региона: " + e.getMessage());
@@ -169,30 +184,103 @@ public class PlayerMoveListener implements Listener {
     }
 
     /**
-     * Очистка неактивных игроков из кэша
+     * Создать состояние игрока (вызывается при входе игрока)
      */
-    private void startCleanupTask() {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                long currentTime = System.currentTimeMillis();
-
-                // Очищаем игроков, которые давно не двигались (5 минут)
-                lastCheckTime.entrySet().removeIf(entry ->
-                        (currentTime - entry.getValue()) > 300000
-                );
-
-                // Удаляем из кэша регионов тех, кого нет в кэше времени
-                playerRegions.keySet().retainAll(lastCheckTime.keySet());
-            }
-        }.runTaskTimer(plugin, 6000L, 6000L); // Каждые 5 минут
+    public void addPlayer(UUID playerId) {
+        sessions.put(playerId, new Session());
     }
 
     /**
-     * Удалить игрока из кэша (вызывается при выходе игрока)
+     * Удалить состояние игрока (вызывается при выходе игрока)
      */
     public void removePlayer(UUID playerId) {
-        playerRegions.remove(playerId);
-        lastCheckTime.remove(playerId);
+        sessions.remove(playerId);
+    }
+
+    /**
+     * Состояние игрока: последний блок и границы, внутри которых
+     * результат поиска региона не меняется
+     */
+    private static final class Session {
+        World world;
+        long version;
+        int blockX, blockY, blockZ;
+
+        // Текущий регион (null - игрок вне регионов)
+        ProtectedRegion region;
+        // Центр и квадрат радиуса текущего региона
+        int centerX, centerY, centerZ;
+        long radiusSquared;
+        // Пустая область вокруг игрока (если он вне регионов)
+        int minX, minY, minZ, maxX, maxY, maxZ;
+
+        /**
+         * Можно ли не искать регион для нового блока
+         */
+        boolean isStillValid(int x, int y, int z) {
+            if (region != null) {
+                long dx = x - centerX;
+                long dy = y - centerY;
+                long dz = z - centerZ;
+                return dx * dx + dy * dy + dz * dz <= radiusSquared;
+            }
+
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+
+        /**
+         * Найти регион для блока и запомнить границы, внутри которых ответ не изменится
+         */
+        ProtectedRegion update(RegionSnapshot index, World world, int x, int y, int z) {
+            region = world != null ? index.getRegionAt(world, x, y, z) : null;
+
+            if (region != null) {
+                Location center = region.getLocation();
+                centerX = center.getBlockX();
+                centerY = center.getBlockY();
+                centerZ = center.getBlockZ();
+                radiusSquared = (long) region.getRadius() * region.getRadius();
+                return region;
+            }
+
+            // Пустая область: столб текущего чанка, из которого вырезаны
+            // кубы всех регионов чанка (каждый отсекается по одной оси)
+            minX = x & ~15;
+            maxX = minX + 15;
+            minZ = z & ~15;
+            maxZ = minZ + 15;
+            minY = Integer.MIN_VALUE;
+            maxY = Integer.MAX_VALUE;
+
+            if (world == null) return null;
+
+            List<ProtectedRegion> candidates = index.getRegionsInChunk(world, x >> 4, z >> 4);
+            for (int i = 0, size = candidates.size(); i < size; i++) {
+                ProtectedRegion candidate = candidates.get(i);
+                Location center = candidate.getLocation();
+                int radius = candidate.getRadius();
+
+                if (x > center.getBlockX() + radius) {
+                    minX = Math.max(minX, center.getBlockX() + radius + 1);
+                } else if (x < center.getBlockX() - radius) {
+                    maxX = Math.min(maxX, center.getBlockX() - radius - 1);
+                } else if (z > center.getBlockZ() + radius) {
+                    minZ = Math.max(minZ, center.getBlockZ() + radius + 1);
+                } else if (z < center.getBlockZ() - radius) {
+                    maxZ = Math.min(maxZ, center.getBlockZ() - radius - 1);
+                } else if (y > center.getBlockY() + radius) {
+                    minY = Math.max(minY, center.getBlockY() + radius + 1);
+                } else if (y < center.getBlockY() - radius) {
+                    maxY = Math.min(maxY, center.getBlockY() - radius - 1);
+                } else {
+                    // Игрок в кубе региона, но вне его сферы: проверяем каждый блок
+                    minX = maxX = x;
+                    minY = maxY = y;
+                    minZ = maxZ = z;
+                    return null;
+                }
+            }
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
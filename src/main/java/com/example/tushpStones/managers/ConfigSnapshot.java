@@ -0,0 +1,302 @@
+package com.example.tushpStones.managers;
+
+import com.example.tushpStones.models.ProtectionBlock;
+import com.example.tushpStones.utils.MessageTemplate;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Неизменяемый снимок настроек config.yml и blocks.yml
+ * Собирается целиком (при /ps reload - вне основного потока) и подменяется
+ * одной записью, поэтому обработчики событий никогда не видят наполовину
+ * загруженные блоки и не разбирают YAML-пути на каждое событие.
+ */
+public final class ConfigSnapshot {
+
+    /**
+     * Сообщения из секции messages (ключ и текст по умолчанию)
+     */
+    public enum Message {
+        REGION_ENTER("region-enter", "&7» &aВы вошли в регион &6{owner}"),
+        REGION_LEAVE("region-leave", "&7» &cВы вышли из региона &6{owner}"),
+        TITLE_OWNER("titles.owner.title", "&a✖ {owner} ✖"),
+        SUBTITLE_OWNER("titles.owner.subtitle", "&aВаш регион"),
+        TITLE_MEMBER("titles.member.title", "&e✖ {owner} ✖"),
+        SUBTITLE_MEMBER("titles.member.subtitle", "&eВы участник"),
+        TITLE_FOREIGN("titles.foreign.title", "&c✖ {owner} ✖"),
+        SUBTITLE_FOREIGN("titles.foreign.subtitle", "&cЧужой регион"),
+        REGION_DAMAGED("region-damaged", "&c⚠ Регион получил урон! Прочность: &4{current}&c/&6{max}"),
+        DAMAGE_DEALT("damage-dealt", "&a✓ Урон нанесен! &7[&6{current}&7/&6{max}&7]"),
+        REGION_DESTROYED("region-destroyedd", "&4&l✖ ВАШ РЕГИОН УНИЧТОЖЕН!"),
+        HEALTH_UPGRADED("health-upgraded", "&a✓ Прочность улучшена! &7[&6{current}&7/&6{max}&7]"),
+        HEALTH_MAX("health-max", "&cПрочность уже максимальная!"),
+        WRONG_UPGRADE_ITEM("wrong-upgrade-item", "&cДля улучшения нужен: &6{item}"),
+        NOT_UPGRADEABLE("not-upgradeable", "&cЭтот регион нельзя улучшить!");
+
+        private final String key;
+        private final String defaultText;
+
+        Message(String key, String defaultText) {
+            this.key = key;
+            this.defaultText = defaultText;
+        }
+    }
+
+    private final FileConfiguration config;
+
+    // Шаблоны сообщений: индекс - Message.ordinal()
+    private final MessageTemplate[] messages;
+
+    // Блоки приватов: индекс - Material.ordinal()
+    private final ProtectionBlock[] protectionBlocksByOrdinal;
+    private final Map<Material, ProtectionBlock> protectionBlocks;
+
+    // Частые настройки
+    private final boolean explosionMessages;
+    private final boolean preventRegionOverlap;
+    private final int minimumRegionDistance;
+    private final int defaultRegionLimit;
+    private final long limitCacheMillis;
+
+    private final boolean showTitles;
+    private final boolean showParticlesOnEnter;
+    private final boolean showParticlesOnCreation;
+    private final boolean showParticlesOnDestruction;
+    private final int particlesVisibleDistance;
+    private final int borderDisplayDuration;
+    private final int particleBudgetPerTick;
+    private final double particleLodDistance;
+
+    private final boolean hologramsEnabled;
+    private final double hologramHeight;
+    private final int hologramUpdateInterval;
+    private final boolean hologramHealthBar;
+
+    private ConfigSnapshot(FileConfiguration config, Map<Material, ProtectionBlock> protectionBlocks) {
+        this.config = config;
+
+        this.protectionBlocks = Collections.unmodifiableMap(protectionBlocks);
+        this.protectionBlocksByOrdinal = new ProtectionBlock[Material.values().length];
+        for (ProtectionBlock block : protectionBlocks.values()) {
+            protectionBlocksByOrdinal[block.getMaterial().ordinal()] = block;
+        }
+
+        this.explosionMessages = config.getBoolean("explosion-messages", true);
+        this.preventRegionOverlap = config.getBoolean("prevent-region-overlap", true);
+        this.minimumRegionDistance = Math.max(0, config.getInt("minimum-region-distance", 0));
+        this.defaultRegionLimit = config.getInt("default-region-limit", 3);
+        this.limitCacheMillis = config.getLong("limit-cache-seconds", 60) * 1000L;
+
+        this.showTitles = config.getBoolean("messages.show-titles", true);
+        this.showParticlesOnEnter = config.getBoolean("particles.show-on-enter", true);
+        // Старые конфиги хранили эти ключи в корне
+        this.showParticlesOnCreation = config.getBoolean("particles.show-particles-on-creation",
+                config.getBoolean("show-particles-on-creation", true));
+        this.showParticlesOnDestruction = config.getBoolean("particles.show-particles-on-destruction",
+                config.getBoolean("show-particles-on-destruction", true));
+        this.particlesVisibleDistance = config.getInt("particles.visible-distance", 0);
+        this.borderDisplayDuration = config.getInt("particles.border-display-duration", 5);
+        this.particleBudgetPerTick = config.getInt("particles.budget.per-tick", 300);
+        this.particleLodDistance = config.getDouble("particles.lod-distance", 16);
+
+        this.hologramsEnabled = config.getBoolean("holograms.enabled", true);
+        this.hologramHeight = config.getDouble("holograms.height", 2.5);
+        this.hologramUpdateInterval = config.getInt("holograms.update-interval", 20);
+        this.hologramHealthBar = config.getBoolean("holograms.show-health-bar", true);
+
+        Message[] keys = Message.values();
+        this.messages = new MessageTemplate[keys.length];
+        for (Message message : keys) {
+            messages[message.ordinal()] = MessageTemplate.compile(
+                    config.getString("messages." + message.key, message.defaultText));
+        }
+    }
+
+    /**
+     * Собрать снимок из загруженных файлов
+     * Не обращается к серверу, поэтому может выполняться в любом потоке
+     */
+    public static ConfigSnapshot parse(FileConfiguration config, FileConfiguration blocksConfig, Logger logger) {
+        return new ConfigSnapshot(config, parseProtectionBlocks(blocksConfig, logger));
+    }
+
+    /**
+     * Загрузка блоков приватов из blocks.yml
+     */
+    private static Map<Material, ProtectionBlock> parseProtectionBlocks(FileConfiguration blocksConfig, Logger logger) {
+        Map<Material, ProtectionBlock> protectionBlocks = new EnumMap<>(Material.class);
+
+        ConfigurationSection blocksSection = blocksConfig.getConfigurationSection("blocks");
+        if (blocksSection == null) {
+            logger.warning("Секция 'blocks' не найдена в blocks.yml!");
+            return protectionBlocks;
+        }
+
+        for (String key : blocksSection.getKeys(false)) {
+            ConfigurationSection blockSection = blocksSection.getConfigurationSection(key);
+            if (blockSection == null) continue;
+
+            try {
+                Material material = Material.valueOf(blockSection.getString("material", "SPONGE"));
+                int radius = blockSection.getInt("radius", 10);
+                int priority = blockSection.getInt("priority", 0);
+                boolean canBeDestroyed = blockSection.getBoolean("can-be-destroyed", false);
+
+                // Загрузка динамитов, которые могут разрушить
+                List<String> allowedExplosivesRaw = blockSection.getStringList("allowed-explosives");
+                Set<Material> allowedExplosives = EnumSet.noneOf(Material.class);
+
+                for (String explosive : allowedExplosivesRaw) {
+                    try {
+                        allowedExplosives.add(Material.valueOf(explosive.toUpperCase()));
+                    } catch (IllegalArgumentException e) {
+                        logger.warning("Неизвестный материал взрывчатки: " + explosive);
+                    }
+                }
+
+                // Загрузка флагов
+                Map<String, Object> flags = new HashMap<>();
+                ConfigurationSection flagsSection = blockSection.getConfigurationSection("flags");
+                if (flagsSection != null) {
+                    for (String flagKey : flagsSection.getKeys(false)) {
+                        flags.put(flagKey, flagsSection.get(flagKey));
+                    }
+                }
+
+                // Загрузка настроек прочности
+                ConfigurationSection healthSection = blockSection.getConfigurationSection("health");
+                boolean healthEnabled = false;
+                int defaultHealth = 0;
+                int maxHealth = 0;
+                Material upgradeItem = null;
+                int upgradeAmount = 0;
+                int costPerUpgrade = 0;
+
+                if (healthSection != null) {
+                    healthEnabled = healthSection.getBoolean("enabled", false);
+                    defaultHealth = healthSection.getInt("default", 100);
+                    maxHealth = healthSection.getInt("max", 1000);
+
+                    String upgradeItemStr = healthSection.getString("upgrade-item", "DIAMOND");
+                    try {
+                        upgradeItem = Material.valueOf(upgradeItemStr.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        logger.warning("Неизвестный предмет для улучшения: " + upgradeItemStr);
+                        upgradeItem = Material.DIAMOND;
+                    }
+
+                    upgradeAmount = healthSection.getInt("upgrade-amount", 50);
+                    costPerUpgrade = healthSection.getInt("cost-per-upgrade", 1);
+                }
+
+                ProtectionBlock protectionBlock = new ProtectionBlock(
+                        key, material, radius, priority, canBeDestroyed, allowedExplosives, flags,
+                        healthEnabled, defaultHealth, maxHealth, upgradeItem, upgradeAmount, costPerUpgrade
+                );
+
+                protectionBlocks.put(material, protectionBlock);
+
+            } catch (Exception e) {
+                logger.warning("Ошибка загрузки блока " + key + ": " + e.getMessage());
+            }
+        }
+        return protectionBlocks;
+    }
+
+    /**
+     * Исходный config.yml (для редко читаемых настроек)
+     */
+    public FileConfiguration getConfig() {
+        return config;
+    }
+
+    public MessageTemplate getMessage(Message message) {
+        return messages[message.ordinal()];
+    }
+
+    public ProtectionBlock getProtectionBlock(Material material) {
+        return protectionBlocksByOrdinal[material.ordinal()];
+    }
+
+    public boolean isProtectionBlock(Material material) {
+        return protectionBlocksByOrdinal[material.ordinal()] != null;
+    }
+
+    public Map<Material, ProtectionBlock> getProtectionBlocks() {
+        return protectionBlocks;
+    }
+
+    // Геттеры настроек
+    public boolean isExplosionMessages() {
+        return explosionMessages;
+    }
+
+    public boolean isPreventRegionOverlap() {
+        return preventRegionOverlap;
+    }
+
+    public int getMinimumRegionDistance() {
+        return minimumRegionDistance;
+    }
+
+    public int getDefaultRegionLimit() {
+        return defaultRegionLimit;
+    }
+
+    public long getLimitCacheMillis() {
+        return limitCacheMillis;
+    }
+
+    public boolean isShowTitles() {
+        return showTitles;
+    }
+
+    public boolean isShowParticlesOnEnter() {
+        return showParticlesOnEnter;
+    }
+
+    public boolean isShowParticlesOnCreation() {
+        return showParticlesOnCreation;
+    }
+
+    public boolean isShowParticlesOnDestruction() {
+        return showParticlesOnDestruction;
+    }
+
+    public int getParticlesVisibleDistance() {
+        return particlesVisibleDistance;
+    }
+
+    public int getBorderDisplayDuration() {
+        return borderDisplayDuration;
+    }
+
+    public int getParticleBudgetPerTick() {
+        return particleBudgetPerTick;
+    }
+
+    public double getParticleLodDistance() {
+        return particleLodDistance;
+    }
+
+    // Голограммы
+    public boolean isHologramsEnabled() {
+        return hologramsEnabled;
+    }
+
+    public double getHologramHeight() {
+        return hologramHeight;
+    }
+
+    public int getHologramUpdateInterval() {
+        return hologramUpdateInterval;
+    }
+
+    public boolean isHologramHealthBar() {
+        return hologramHealthBar;
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.tushpStones.managers;
+
+import com.example.tushpStones.TushpStones;
+import com.example.tushpStones.models.ProtectedRegion;
+import com.example.tushpStones.utils.RegionHologram;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Видимость голограмм для отдельных игроков (holograms.visibility)
+ * В режимах, кроме all, голограмма скрыта по умолчанию и показывается только
+ * тем, кому она нужна, поэтому изменения прочности не рассылаются всем игрокам рядом.
+ *
+ * Владельцы и участники региона видят голограмму во всех режимах.
+ * Показ и скрытие выполняются в потоке игрока (на Folia - его область мира).
+ */
+public class HologramVisibility {
+
+    public enum Mode {
+        /** Все игроки */
+        ALL,
+        /** Только владельцы и участники */
+        MEMBERS,
+        /** Игроки в пределах holograms.visible-distance блоков от центра */
+        NEARBY,
+        /** Чужие игроки внутри региона */
+        RAIDING
+    }
+
+    private final TushpStones plugin;
+    private final Map<String, RegionHologram> holograms;
+    private final Supplier<RegionSnapshot> regions;
+
+    // Игрок -> голограммы, которые ему показаны
+    private final Map<UUID, Set<RegionHologram>> shown = new ConcurrentHashMap<>();
+
+    private volatile Mode mode = Mode.ALL;
+    private volatile double distance;
+
+    public HologramVisibility(TushpStones plugin, Map<String, RegionHologram> holograms,
+                              Supplier<RegionSnapshot> regions) {
+        this.plugin = plugin;
+        this.holograms = holograms;
+        this.regions = regions;
+    }
+
+    /**
+     * Прочитать режим из конфига
+     */
+    public void reload() {
+        String value = plugin.getConfig().getString("holograms.visibility", "all");
+        try {
+            mode = Mode.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Неизвестный режим видимости голограмм " + value + ", используется all");
+            mode = Mode.ALL;
+        }
+        distance = plugin.getConfig().getDouble("holograms.visible-distance", 16);
+        shown.clear();
+    }
+
+    /**
+     * Видна ли голограмма всем игрокам без отдельного показа
+     */
+    public boolean isVisibleByDefault() {
+        return mode == Mode.ALL;
+    }
+
+    /**
+     * Голограмма создана - показываем ее игрокам, которым она нужна
+     * Вызывается в потоке, владеющем центром региона: кандидаты выбираются
+     * запросом рядом с центром, а не перебором всех игроков мира
+     */
+    public void onSpawn(RegionHologram hologram) {
+        if (mode == Mode.ALL) return;
+
+        ProtectedRegion region = hologram.getRegion();
+        Location center = region.getLocation();
+        World world = center.getWorld();
+        if (world == null) return;
+
+        Set<Player> candidates = onlineWithAccess(region, world);
+        switch (mode) {
+            case NEARBY:
+                candidates.addAll(world.getNearbyPlayers(center, distance));
+                break;
+            case RAIDING:
+                candidates.addAll(world.getNearbyPlayers(center, region.getRadius()));
+                break;
+            default:
+                break;
+        }
+        updateFor(candidates, hologram);
+    }
+
+    /**
+     * Голограмма удалена
+     */
+    public void onRemove(RegionHologram hologram) {
+        if (mode == Mode.ALL) return;
+
+        for (Set<RegionHologram> set : shown.values()) {
+            set.remove(hologram);
+        }
+    }
+
+    /**
+     * Вход игрока или смена мира - проверяем все загруженные голограммы
+     */
+    public void refresh(Player player) {
+        if (mode == Mode.ALL) return;
+
+        Location location = player.getLocation();
+        for (RegionHologram hologram : holograms.values()) {
+            update(player, location, hologram);
+        }
+    }
+
+    /**
+     * Выход игрока
+     */
+    public void remove(UUID playerId) {
+        shown.remove(playerId);
+    }
+
+    /**
+     * Игрок перешел из одного региона в другой (любой из них может быть null)
+     * @param location Новая позиция игрока
+     */
+    public void onRegionChange(Player player, Location location, ProtectedRegion from, ProtectedRegion to) {
+        if (mode != Mode.RAIDING) return;
+
+        if (from != null) {
+            update(player, location, from);
+        }
+        if (to != null) {
+            update(player, location, to);
+        }
+    }
+
+    /**
+     * Игрок перешел в другой чанк - пересчитываем голограммы в радиусе видимости
+     * @param location Новая позиция игрока
+     */
+    public void onChunkChange(Player player, Location location) {
+        if (mode != Mode.NEARBY) return;
+
+        // Уже показанные: могли оказаться дальше visible-distance
+        Set<RegionHologram> current = shown.get(player.getUniqueId());
+        if (current != null && !current.isEmpty()) {
+            for (RegionHologram hologram : new ArrayList<>(current)) {
+                update(player, location, hologram);
+            }
+        }
+
+        RegionSnapshot snapshot = regions.get();
+        int chunkRadius = ((int) Math.ceil(distance) >> 4) + 1;
+        int playerChunkX = location.getBlockX() >> 4;
+        int playerChunkZ = location.getBlockZ() >> 4;
+
+        for (int chunkX = playerChunkX - chunkRadius; chunkX <= playerChunkX + chunkRadius; chunkX++) {
+            for (int chunkZ = playerChunkZ - chunkRadius; chunkZ <= playerChunkZ + chunkRadius; chunkZ++) {
+                for (ProtectedRegion region : snapshot.getRegionsInChunk(location.getWorld(), chunkX, chunkZ)) {
+                    update(player, location, region);
+                }
+            }
+        }
+    }
+
+    /**
+     * Изменились владельцы или участники региона
+     */
+    public void onAccessChanged(ProtectedRegion region) {
+        if (mode == Mode.ALL) return;
+
+        RegionHologram hologram = holograms.get(region.getId());
+        if (hologram == null) return;
+
+        World world = region.getLocation().getWorld();
+        if (world == null) return;
+
+        // Новые участники и те, кому голограмма уже показана (доступ могли отозвать)
+        Set<Player> candidates = onlineWithAccess(region, world);
+        for (Map.Entry<UUID, Set<RegionHologram>> entry : shown.entrySet()) {
+            if (entry.getValue().contains(hologram)) {
+                Player player = plugin.getServer().getPlayer(entry.getKey());
+                if (player != null) {
+                    candidates.add(player);
+                }
+            }
+        }
+        updateFor(candidates, hologram);
+    }
+
+    /**
+     * Владелец, совладельцы и участники региона, находящиеся в его мире
+     */
+    private Set<Player> onlineWithAccess(ProtectedRegion region, World world) {
+        Set<Player> players = new HashSet<>();
+        addOnline(players, region.getOwner(), world);
+        for (UUID uuid : region.getCoOwners()) {
+            addOnline(players, uuid, world);
+        }
+        for (UUID uuid : region.getMembers()) {
+            addOnline(players, uuid, world);
+        }
+        return players;
+    }
+
+    private void addOnline(Set<Player> players, UUID uuid, World world) {
+        Player player = plugin.getServer().getPlayer(uuid);
+        if (player != null && player.getWorld() == world) {
+            players.add(player);
+        }
+    }
+
+    /**
+     * Пересчитать видимость для выбранных игроков, каждому - в его потоке
+     */
+    private void updateFor(Collection<Player> players, RegionHologram hologram) {
+        for (Player player : players) {
+            plugin.getTaskScheduler().runFor(player, () -> update(player, player.getLocation(), hologram));
+        }
+    }
+
+    private void update(Player player, Location location, ProtectedRegion region) {
+        RegionHologram hologram = holograms.get(region.getId());
+        if (hologram != null) {
+            update(player, location, hologram);
+        }
+    }
+
+    /**
+     * Показать или скрыть голограмму игроку, если это нужно
+     */
+    private void update(Player player, Location location, RegionHologram hologram) {
+        boolean visible = canSee(player, location, hologram.getRegion());
+
+        if (visible) {
+            if (shown.computeIfAbsent(player.getUniqueId(), k -> ConcurrentHashMap.newKeySet()).add(hologram)) {
+                hologram.show(player);
+            }
+        } else {
+            Set<RegionHologram> set = shown.get(player.getUniqueId());
+            if (set != null && set.remove(hologram)) {
+                hologram.hide(player);
+            }
+        }
+    }
+
+    private boolean canSee(Player player, Location location, ProtectedRegion region) {
+        if (region.hasAccess(player.getUniqueId())) {
+            return true;
+        }
+
+        if (location.getWorld() != region.getLocation().getWorld()) {
+            return false;
+        }
+
+        switch (mode) {
+            case NEARBY:
+                return location.distanceSquared(region.getLocation()) <= distance * distance;
+            case RAIDING:
+                return region.contains(location);
+            default:
+                return false;
+        }
+    }
+}
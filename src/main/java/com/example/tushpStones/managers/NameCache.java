@@ -0,0 +1,167 @@
+package com.example.tushpStones.managers;
+
+import com.example.tushpStones.TushpStones;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Кэш имен игроков по UUID
+ * Поиск профиля (getOfflinePlayer) может читать usercache или диск, поэтому
+ * в основном потоке имя берется только из памяти, а промахи разрешаются в фоне.
+ * До разрешения возвращается заглушка, после - обновляются голограммы владельца.
+ * Имена читаются из потоков разных областей мира (Folia), поэтому доступ к кэшу синхронизирован.
+ *
+ * Кэш ограничен name-cache.max-size записями и сохраняется в names.yml
+ */
+public class NameCache {
+
+    public static final String PLACEHOLDER = "...";
+    public static final String UNKNOWN = "Неизвестно";
+
+    private final TushpStones plugin;
+    private final File file;
+    private final Map<UUID, String> names = new LinkedHashMap<UUID, String>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+            return size() > maxSize;
+        }
+    };
+    // UUID, для которых уже идет поиск в фоне
+    private final Set<UUID> resolving = new HashSet<>();
+    private boolean dirty;
+    private int maxSize = 5000;
+
+    public NameCache(TushpStones plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "names.yml");
+    }
+
+    /**
+     * Загрузить сохраненные имена
+     */
+    public synchronized void load() {
+        maxSize = Math.max(16, plugin.getConfig().getInt("name-cache.max-size", 5000));
+        if (!file.exists()) return;
+
+        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
+        for (String key : config.getKeys(false)) {
+            try {
+                String name = config.getString(key);
+                if (name != null) {
+                    names.put(UUID.fromString(key), name);
+                }
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().warning("Неверный UUID в names.yml: " + key);
+            }
+        }
+    }
+
+    /**
+     * Сохранить имена (вызывается при выключении)
+     */
+    public synchronized void save() {
+        if (!dirty) return;
+
+        YamlConfiguration config = new YamlConfiguration();
+        for (Map.Entry<UUID, String> entry : names.entrySet()) {
+            if (!UNKNOWN.equals(entry.getValue())) {
+                config.set(entry.getKey().toString(), entry.getValue());
+            }
+        }
+
+        try {
+            config.save(file);
+            dirty = false;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Не удалось сохранить names.yml: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Имя игрока без блокировки: при промахе возвращает заглушку и запускает поиск в фоне
+     */
+    public String getName(UUID uuid) {
+        synchronized (this) {
+            String name = names.get(uuid);
+            if (name != null) {
+                return name;
+            }
+        }
+
+        resolve(Collections.singletonList(uuid));
+        return PLACEHOLDER;
+    }
+
+    /**
+     * Запомнить имя игрока (вход на сервер)
+     */
+    public void warm(Player player) {
+        String previous;
+        synchronized (this) {
+            previous = names.put(player.getUniqueId(), player.getName());
+            if (player.getName().equals(previous)) return;
+            dirty = true;
+        }
+
+        if (previous != null) {
+            plugin.getRegionManager().onOwnerNameChanged(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Разрешить в фоне имена, которых нет в кэше (загрузка регионов)
+     */
+    public void warm(Collection<UUID> uuids) {
+        List<UUID> missing = new ArrayList<>();
+        synchronized (this) {
+            for (UUID uuid : uuids) {
+                if (!names.containsKey(uuid)) {
+                    missing.add(uuid);
+                }
+            }
+        }
+        resolve(missing);
+    }
+
+    private void resolve(Collection<UUID> uuids) {
+        List<UUID> batch = new ArrayList<>();
+        synchronized (this) {
+            for (UUID uuid : uuids) {
+                if (resolving.add(uuid)) {
+                    batch.add(uuid);
+                }
+            }
+        }
+        if (batch.isEmpty()) return;
+
+        plugin.getTaskScheduler().runAsync(() -> {
+            Map<UUID, String> resolved = new HashMap<>();
+            for (UUID uuid : batch) {
+                String name = plugin.getServer().getOfflinePlayer(uuid).getName();
+                resolved.put(uuid, name != null ? name : UNKNOWN);
+            }
+
+            if (!plugin.isEnabled()) return;
+
+            // Результат применяется в основном (глобальном) потоке
+            plugin.getTaskScheduler().runGlobal(() -> {
+                synchronized (this) {
+                    for (Map.Entry<UUID, String> entry : resolved.entrySet()) {
+                        resolving.remove(entry.getKey());
+                        names.putIfAbsent(entry.getKey(), entry.getValue());
+                    }
+                    dirty = true;
+                }
+
+                for (UUID uuid : resolved.keySet()) {
+                    plugin.getRegionManager().onOwnerNameChanged(uuid);
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.tushpStones.managers;
+
+import com.example.tushpStones.TushpStones;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш лимита регионов игроков
+ * Лимит вычисляется один раз за время жизни записи, а не при каждой
+ * установке блока.
+ *
+ * В Bukkit нет события пересчета прав, поэтому запись сбрасывается при входе,
+ * выходе и смене мира игрока, при /ps reload и по истечении limit-cache-seconds.
+ * Лимит без явного права tushpstones.limit.<число> требует сотни проверок
+ * hasPermission и по времени не сбрасывается.
+ */
+public class RegionLimitCache {
+
+    private static final String LIMIT_PREFIX = "tushpstones.limit.";
+    private static final String UNLIMITED = LIMIT_PREFIX + "unlimited";
+    // Наибольший лимит, проверяемый через hasPermission
+    private static final int MAX_CHECKED_LIMIT = 100;
+
+    private final TushpStones plugin;
+    private final Map<UUID, CachedLimit> limits = new ConcurrentHashMap<>();
+
+    public RegionLimitCache(TushpStones plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Максимальное количество регионов игрока (-1 = без лимита)
+     */
+    public int getLimit(Player player) {
+        long now = System.currentTimeMillis();
+
+        CachedLimit cached = limits.get(player.getUniqueId());
+        if (cached != null && cached.expiresAt > now) {
+            return cached.limit;
+        }
+
+        CachedLimit resolved = resolve(player, now);
+        limits.put(player.getUniqueId(), resolved);
+        return resolved.limit;
+    }
+
+    /**
+     * Сбросить лимит игрока (права могли измениться)
+     */
+    public void invalidate(UUID uuid) {
+        limits.remove(uuid);
+    }
+
+    /**
+     * Сбросить лимиты всех игроков (после перезагрузки конфигурации)
+     */
+    public void clear() {
+        limits.clear();
+    }
+
+    /**
+     * Наибольший tushpstones.limit.<число> среди действующих прав игрока
+     * Учитываются любые положительные числа, а не только объявленные в plugin.yml,
+     * и большие из tushpstones.limit.100..1, выданные шаблоном
+     */
+    private CachedLimit resolve(Player player, long now) {
+        long expiresAt = now + plugin.getConfigManager().getSnapshot().getLimitCacheMillis();
+
+        // Проверка на безлимитное право
+        if (player.hasPermission(UNLIMITED)) {
+            return new CachedLimit(-1, expiresAt);
+        }
+
+        int limit = 0;
+        for (PermissionAttachmentInfo info : player.getEffectivePermissions()) {
+            if (!info.getValue()) continue;
+
+            String permission = info.getPermission();
+            if (!permission.regionMatches(true, 0, LIMIT_PREFIX, 0, LIMIT_PREFIX.length())) continue;
+
+            try {
+                limit = Math.max(limit, Integer.parseInt(permission.substring(LIMIT_PREFIX.length())));
+            } catch (NumberFormatException ignored) {
+                // Не число (например, tushpstones.limit.*)
+            }
+        }
+
+        if (limit == 0) {
+            // Без явного права результат держится до входа, смены мира или перезагрузки
+            expiresAt = Long.MAX_VALUE;
+        }
+
+        // Права через шаблоны и наследование групп (tushpstones.limit.* в LuckPerms и т.п.)
+        // не попадают в действующие права - проверяем по одному только те, что больше найденного
+        for (int i = MAX_CHECKED_LIMIT; i > limit; i--) {
+            if (player.hasPermission(LIMIT_PREFIX + i)) {
+                limit = i;
+                break;
+            }
+        }
+
+        if (limit == 0) {
+            // Лимит по умолчанию из конфига
+            limit = plugin.getConfigManager().getSnapshot().getDefaultRegionLimit();
+        }
+        return new CachedLimit(limit, expiresAt);
+    }
+
+    private static class CachedLimit {
+        final int limit;
+        final long expiresAt;
+
+        CachedLimit(int limit, long expiresAt) {
+            this.limit = limit;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.tushpStones.managers;
+
+import com.example.tushpStones.models.ProtectedRegion;
+import com.example.tushpStones.utils.PersistentHashMap;
+import com.example.tushpStones.utils.PersistentLongMap;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Неизменяемая версия набора регионов и пространственного индекса
+ * Регион регистрируется в каждом чанке, который задевают его границы,
+ * поэтому поиск по точке проверяет только регионы одного чанка.
+ * Центральные блоки регионов хранятся отдельно: проверка "это блок привата?" -
+ * один поиск по ключу long в таблице мира, без упаковки ключа в Long.
+ *
+ * Изменения публикуют новую версию, которая делит со старой все незатронутые
+ * узлы, поэтому читатели в любом потоке (области мира на Folia, асинхронные
+ * задачи, внешние плагины) получают согласованный набор без блокировок.
+ *
+ * Фиксируются только состав регионов и их границы: прочность и участники
+ * региона по-прежнему меняются в потоке, владеющем центром региона.
+ */
+public final class RegionSnapshot {
+
+    static final RegionSnapshot EMPTY = new RegionSnapshot(0, PersistentHashMap.empty(), new WorldIndex[0]);
+
+    private final long version;
+    private final PersistentHashMap<String, ProtectedRegion> regions;
+    // Индексы миров с регионами (миров единицы, поиск - проход по массиву)
+    private final WorldIndex[] worlds;
+
+    private RegionSnapshot(long version, PersistentHashMap<String, ProtectedRegion> regions, WorldIndex[] worlds) {
+        this.version = version;
+        this.regions = regions;
+        this.worlds = worlds;
+    }
+
+    /**
+     * Новая версия с добавленным (или замененным) регионом
+     */
+    RegionSnapshot withRegion(ProtectedRegion region) {
+        RegionSnapshot base = this;
+        ProtectedRegion previous = regions.get(region.getId());
+        if (previous != null) {
+            base = withoutRegion(previous);
+        }
+
+        WorldIndex[] newWorlds = base.worlds;
+        World world = region.getLocation().getWorld();
+        if (world != null) {
+            WorldIndex index = base.world(world.getUID());
+            PersistentLongMap<List<ProtectedRegion>> chunks = index != null ? index.chunks : PersistentLongMap.empty();
+            PersistentLongMap<ProtectedRegion> centers = index != null ? index.centers : PersistentLongMap.empty();
+
+            long[] keys = chunkKeys(region);
+            for (long key : keys) {
+                List<ProtectedRegion> list = chunks.get(key);
+                List<ProtectedRegion> copy = new ArrayList<>(list != null ? list.size() + 1 : 1);
+                if (list != null) copy.addAll(list);
+                copy.add(region);
+                chunks = chunks.plus(key, Collections.unmodifiableList(copy));
+            }
+            centers = centers.plus(centerKey(region), region);
+
+            newWorlds = base.withWorld(new WorldIndex(world.getUID(), chunks, centers));
+        }
+
+        return new RegionSnapshot(version + 1, base.regions.plus(region.getId(), region), newWorlds);
+    }
+
+    /**
+     * Новая версия без региона
+     */
+    RegionSnapshot withoutRegion(ProtectedRegion region) {
+        if (regions.get(region.getId()) != region) return this;
+
+        WorldIndex[] newWorlds = worlds;
+        World world = region.getLocation().getWorld();
+        WorldIndex index = world != null ? world(world.getUID()) : null;
+        if (index != null) {
+            PersistentLongMap<List<ProtectedRegion>> chunks = index.chunks;
+            PersistentLongMap<ProtectedRegion> centers = index.centers;
+
+            long[] keys = chunkKeys(region);
+            for (long key : keys) {
+                List<ProtectedRegion> list = chunks.get(key);
+                if (list == null) continue;
+
+                List<ProtectedRegion> copy = new ArrayList<>(list);
+                copy.remove(region);
+                chunks = copy.isEmpty()
+                        ? chunks.minus(key)
+                        : chunks.plus(key, Collections.unmodifiableList(copy));
+            }
+            if (centers.get(centerKey(region)) == region) {
+                centers = centers.minus(centerKey(region));
+            }
+
+            newWorlds = chunks.isEmpty() && centers.isEmpty()
+                    ? withoutWorld(index.worldId)
+                    : withWorld(new WorldIndex(index.worldId, chunks, centers));
+        }
+
+        return new RegionSnapshot(version + 1, regions.minus(region.getId()), newWorlds);
+    }
+
+    /**
+     * Пустая версия (номер версии продолжает расти)
+     */
+    RegionSnapshot cleared() {
+        return new RegionSnapshot(version + 1, PersistentHashMap.empty(), new WorldIndex[0]);
+    }
+
+    private WorldIndex world(UUID worldId) {
+        for (WorldIndex index : worlds) {
+            if (index.worldId.equals(worldId)) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Массив миров с добавленным или замененным индексом мира
+     */
+    private WorldIndex[] withWorld(WorldIndex updated) {
+        for (int i = 0; i < worlds.length; i++) {
+            if (worlds[i].worldId.equals(updated.worldId)) {
+                WorldIndex[] copy = worlds.clone();
+                copy[i] = updated;
+                return copy;
+            }
+        }
+        WorldIndex[] copy = Arrays.copyOf(worlds, worlds.length + 1);
+        copy[worlds.length] = updated;
+        return copy;
+    }
+
+    private WorldIndex[] withoutWorld(UUID worldId) {
+        List<WorldIndex> copy = new ArrayList<>(worlds.length);
+        for (WorldIndex index : worlds) {
+            if (!index.worldId.equals(worldId)) {
+                copy.add(index);
+            }
+        }
+        return copy.toArray(new WorldIndex[0]);
+    }
+
+    /**
+     * Номер версии: растет при каждом добавлении и удалении региона,
+     * по нему кэши регионов понимают, что их данные устарели
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return regions.size();
+    }
+
+    public ProtectedRegion getRegion(String id) {
+        return regions.get(id);
+    }
+
+    /**
+     * Найти регион, содержащий локацию
+     */
+    public ProtectedRegion getRegionAt(Location location) {
+        World world = location.getWorld();
+        if (world == null) return null;
+
+        List<ProtectedRegion> candidates = getRegionsInChunk(world.getUID(),
+                location.getBlockX() >> 4, location.getBlockZ() >> 4);
+
+        for (int i = 0, size = candidates.size(); i < size; i++) {
+            ProtectedRegion region = candidates.get(i);
+            if (region.contains(location)) {
+                return region;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Найти регион, содержащий блок
+     */
+    public ProtectedRegion getRegionAt(UUID worldId, int x, int y, int z) {
+        List<ProtectedRegion> candidates = getRegionsInChunk(worldId, x >> 4, z >> 4);
+
+        for (int i = 0, size = candidates.size(); i < size; i++) {
+            ProtectedRegion region = candidates.get(i);
+            if (region.containsBlock(x, y, z)) {
+                return region;
+            }
+        }
+        return null;
+    }
+
+    public ProtectedRegion getRegionAt(World world, int x, int y, int z) {
+        return getRegionAt(world.getUID(), x, y, z);
+    }
+
+    /**
+     * Найти регион по его центральному блоку (блоку привата)
+     * @return null, если блок не является центром региона
+     */
+    public ProtectedRegion getRegionByCenter(World world, int x, int y, int z) {
+        WorldIndex index = world(world.getUID());
+        return index != null ? index.centers.get(blockKey(x, y, z)) : null;
+    }
+
+    /**
+     * Найти регионы, центр которых лежит внутри параллелепипеда (границы включительно)
+     */
+    public List<ProtectedRegion> getRegionsWithCenterIn(World world, int minX, int minY, int minZ,
+                                                        int maxX, int maxY, int maxZ) {
+        WorldIndex index = world(world.getUID());
+        if (index == null) return Collections.emptyList();
+
+        List<ProtectedRegion> result = null;
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                List<ProtectedRegion> list = index.chunks.get(chunkKey(chunkX, chunkZ));
+                if (list == null) continue;
+
+                for (int i = 0, size = list.size(); i < size; i++) {
+                    Location center = list.get(i).getLocation();
+                    int x = center.getBlockX();
+                    int y = center.getBlockY();
+                    int z = center.getBlockZ();
+
+                    // Регион задевает несколько чанков, но учитываем его только в чанке центра
+                    if (x >> 4 != chunkX || z >> 4 != chunkZ) continue;
+                    if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) continue;
+
+                    if (result == null) result = new ArrayList<>(2);
+                    result.add(list.get(i));
+                }
+            }
+        }
+        return result != null ? result : Collections.emptyList();
+    }
+
+    /**
+     * Получить регионы, задевающие чанк (неизменяемый список)
+     */
+    public List<ProtectedRegion> getRegionsInChunk(UUID worldId, int chunkX, int chunkZ) {
+        WorldIndex index = world(worldId);
+        if (index == null) return Collections.emptyList();
+
+        List<ProtectedRegion> list = index.chunks.get(chunkKey(chunkX, chunkZ));
+        return list != null ? list : Collections.emptyList();
+    }
+
+    public List<ProtectedRegion> getRegionsInChunk(World world, int chunkX, int chunkZ) {
+        return getRegionsInChunk(world.getUID(), chunkX, chunkZ);
+    }
+
+    /**
+     * Перебрать все регионы версии (порядок не определен)
+     */
+    public void forEach(BiConsumer<String, ProtectedRegion> action) {
+        regions.forEach(action);
+    }
+
+    /**
+     * Упаковать координаты чанка в long
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Упаковать координаты блока в long (x и z - по 26 бит, y - 12 бит)
+     */
+    public static long blockKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private static long centerKey(ProtectedRegion region) {
+        Location center = region.getLocation();
+        return blockKey(center.getBlockX(), center.getBlockY(), center.getBlockZ());
+    }
+
+    /**
+     * Ключи всех чанков, которые задевают границы региона
+     */
+    private static long[] chunkKeys(ProtectedRegion region) {
+        Location center = region.getLocation();
+        int radius = region.getRadius();
+
+        int minChunkX = (center.getBlockX() - radius) >> 4;
+        int maxChunkX = (center.getBlockX() + radius) >> 4;
+        int minChunkZ = (center.getBlockZ() - radius) >> 4;
+        int maxChunkZ = (center.getBlockZ() + radius) >> 4;
+
+        long[] keys = new long[(maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1)];
+        int i = 0;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                keys[i++] = chunkKey(chunkX, chunkZ);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Индекс одного мира: упакованные координаты чанка -> регионы
+     * и упакованные координаты центрального блока -> регион
+     */
+    private static final class WorldIndex {
+        final UUID worldId;
+        final PersistentLongMap<List<ProtectedRegion>> chunks;
+        final PersistentLongMap<ProtectedRegion> centers;
+
+        WorldIndex(UUID worldId, PersistentLongMap<List<ProtectedRegion>> chunks,
+                   PersistentLongMap<ProtectedRegion> centers) {
+            this.worldId = worldId;
+            this.chunks = chunks;
+            this.centers = centers;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.tushpStones.managers;
+
+import com.example.tushpStones.models.ProtectedRegion;
+import org.bukkit.Location;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Динамическое AABB-дерево регионов одного мира
+ * Сбалансированное дерево ограничивающих кубов: проверка пересечения
+ * с произвольным кубом выполняется за логарифмическое время
+ */
+public class RegionTree {
+
+    /**
+     * Узел дерева (лист хранит регион, внутренний узел - объединение детей)
+     */
+    private static final class Node {
+        int minX, minY, minZ;
+        int maxX, maxY, maxZ;
+        Node parent;
+        Node left;
+        Node right;
+        int height;
+        ProtectedRegion region;
+
+        boolean isLeaf() {
+            return left == null;
+        }
+
+        void setUnion(Node a, Node b) {
+            minX = Math.min(a.minX, b.minX);
+            minY = Math.min(a.minY, b.minY);
+            minZ = Math.min(a.minZ, b.minZ);
+            maxX = Math.max(a.maxX, b.maxX);
+            maxY = Math.max(a.maxY, b.maxY);
+            maxZ = Math.max(a.maxZ, b.maxZ);
+        }
+
+        double surface() {
+            return surface(maxX - minX, maxY - minY, maxZ - minZ);
+        }
+
+        double unionSurface(Node other) {
+            return surface(
+                    Math.max(maxX, other.maxX) - Math.min(minX, other.minX),
+                    Math.max(maxY, other.maxY) - Math.min(minY, other.minY),
+                    Math.max(maxZ, other.maxZ) - Math.min(minZ, other.minZ)
+            );
+        }
+
+        static double surface(double dx, double dy, double dz) {
+            return 2.0 * (dx * dy + dy * dz + dz * dx);
+        }
+    }
+
+    private final Map<ProtectedRegion, Node> leaves = new HashMap<>();
+    private Node root;
+    private Node[] stack = new Node[64];
+
+    /**
+     * Добавить регион в дерево
+     */
+    public void insert(ProtectedRegion region) {
+        remove(region);
+
+        Location center = region.getLocation();
+        int radius = region.getRadius();
+
+        Node leaf = new Node();
+        leaf.region = region;
+        leaf.minX = center.getBlockX() - radius;
+        leaf.minY = center.getBlockY() - radius;
+        leaf.minZ = center.getBlockZ() - radius;
+        leaf.maxX = center.getBlockX() + radius;
+        leaf.maxY = center.getBlockY() + radius;
+        leaf.maxZ = center.getBlockZ() + radius;
+
+        leaves.put(region, leaf);
+        insertLeaf(leaf);
+    }
+
+    /**
+     * Удалить регион из дерева
+     */
+    public void remove(ProtectedRegion region) {
+        Node leaf = leaves.remove(region);
+        if (leaf != null) {
+            removeLeaf(leaf);
+        }
+    }
+
+    /**
+     * Очистить дерево
+     */
+    public void clear() {
+        leaves.clear();
+        root = null;
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Пересекает ли какой-нибудь регион заданный куб
+     * Касание гранями пересечением не считается
+     */
+    public boolean intersects(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (root == null) return false;
+
+        int size = 0;
+        stack[size++] = root;
+
+        while (size > 0) {
+            Node node = stack[--size];
+
+            if (!(minX < node.maxX && maxX > node.minX
+                    && minY < node.maxY && maxY > node.minY
+                    && minZ < node.maxZ && maxZ > node.minZ)) {
+                continue;
+            }
+
+            if (node.isLeaf()) {
+                return true;
+            }
+
+            if (size + 2 > stack.length) {
+                Node[] grown = new Node[stack.length * 2];
+                System.arraycopy(stack, 0, grown, 0, size);
+                stack = grown;
+            }
+            stack[size++] = node.left;
+            stack[size++] = node.right;
+        }
+
+        return false;
+    }
+
+    /**
+     * Вставка листа: спуск к соседу с минимальным приростом площади
+     */
+    private void insertLeaf(Node leaf) {
+        if (root == null) {
+            root = leaf;
+            leaf.parent = null;
+            return;
+        }
+
+        Node sibling = root;
+        while (!sibling.isLeaf()) {
+            Node left = sibling.left;
+            Node right = sibling.right;
+
+            double area = sibling.surface();
+            double combinedArea = sibling.unionSurface(leaf);
+
+            // Стоимость создания нового родителя для этого узла и листа
+            double cost = 2.0 * combinedArea;
+            // Минимальная стоимость спуска ниже
+            double inheritanceCost = 2.0 * (combinedArea - area);
+
+            double costLeft = leaf.unionSurface(left) + inheritanceCost;
+            if (!left.isLeaf()) {
+                costLeft -= left.surface();
+            }
+
+            double costRight = leaf.unionSurface(right) + inheritanceCost;
+            if (!right.isLeaf()) {
+                costRight -= right.surface();
+            }
+
+            if (cost < costLeft && cost < costRight) {
+                break;
+            }
+
+            sibling = costLeft < costRight ? left : right;
+        }
+
+        Node oldParent = sibling.parent;
+        Node newParent = new Node();
+        newParent.parent = oldParent;
+        newParent.setUnion(leaf, sibling);
+        newParent.height = sibling.height + 1;
+
+        if (oldParent != null) {
+            if (oldParent.left == sibling) {
+                oldParent.left = newParent;
+            } else {
+                oldParent.right = newParent;
+            }
+        } else {
+            root = newParent;
+        }
+
+        newParent.left = sibling;
+        newParent.right = leaf;
+        sibling.parent = newParent;
+        leaf.parent = newParent;
+
+        refit(leaf.parent);
+    }
+
+    /**
+     * Удаление листа: его место занимает сосед
+     */
+    private void removeLeaf(Node leaf) {
+        if (leaf == root) {
+            root = null;
+            return;
+        }
+
+        Node parent = leaf.parent;
+        Node grandParent = parent.parent;
+        Node sibling = parent.left == leaf ? parent.right : parent.left;
+
+        if (grandParent != null) {
+            if (grandParent.left == parent) {
+                grandParent.left = sibling;
+            } else {
+                grandParent.right = sibling;
+            }
+            sibling.parent = grandParent;
+            refit(grandParent);
+        } else {
+            root = sibling;
+            sibling.parent = null;
+        }
+
+        leaf.parent = null;
+    }
+
+    /**
+     * Подъем к корню с балансировкой и пересчетом границ
+     */
+    private void refit(Node node) {
+        while (node != null) {
+            node = balance(node);
+            node.height = 1 + Math.max(node.left.height, node.right.height);
+            node.setUnion(node.left, node.right);
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Поворот, если высоты поддеревьев отличаются больше чем на 1
+     * @return Узел, оказавшийся на месте переданного
+     */
+    private Node balance(Node a) {
+        if (a.isLeaf() || a.height < 2) {
+            return a;
+        }
+
+        Node b = a.left;
+        Node c = a.right;
+        int balance = c.height - b.height;
+
+        // Поднимаем правого ребенка
+        if (balance > 1) {
+            Node f = c.left;
+            Node g = c.right;
+
+            c.left = a;
+            c.parent = a.parent;
+            a.parent = c;
+            replaceChild(c.parent, a, c);
+
+            if (f.height > g.height) {
+                c.right = f;
+                a.right = g;
+                g.parent = a;
+                a.setUnion(b, g);
+                c.setUnion(a, f);
+                a.height = 1 + Math.max(b.height, g.height);
+                c.height = 1 + Math.max(a.height, f.height);
+            } else {
+                c.right = g;
+                a.right = f;
+                f.parent = a;
+                a.setUnion(b, f);
+                c.setUnion(a, g);
+                a.height = 1 + Math.max(b.height, f.height);
+                c.height = 1 + Math.max(a.height, g.height);
+            }
+            return c;
+        }
+
+        // Поднимаем левого ребенка
+        if (balance < -1) {
+            Node d = b.left;
+            Node e = b.right;
+
+            b.left = a;
+            b.parent = a.parent;
+            a.parent = b;
+            replaceChild(b.parent, a, b);
+
+            if (d.height > e.height) {
+                b.right = d;
+                a.left = e;
+                e.parent = a;
+                a.setUnion(c, e);
+                b.setUnion(a, d);
+                a.height = 1 + Math.max(c.height, e.height);
+                b.height = 1 + Math.max(a.height, d.height);
+            } else {
+                b.right = e;
+                a.left = d;
+                d.parent = a;
+                a.setUnion(c, d);
+                b.setUnion(a, e);
+                a.height = 1 + Math.max(c.height, d.height);
+                b.height = 1 + Math.max(a.height, e.height);
+            }
+            return b;
+        }
+
+        return a;
+    }
+
+    private void replaceChild(Node parent, Node oldChild, Node newChild) {
+        if (parent == null) {
+            root = newChild;
+        } else if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
+    }
+}
@@ -3,7 +3,14 @@ package com.example.tushpStones.managers;
 import com.example.tushpStones.TushpStones;
 import com.example.tushpStones.models.ProtectedRegion;
 import com.example.tushpStones.models.ProtectionBlock;
+import com.example.tushpStones.storage.MappedRegionStore;
+import com.example.tushpStones.storage.RegionChange;
+import com.example.tushpStones.storage.SqliteStorageBackend;
+import com.example.tushpStones.storage.StorageBackend;
+import com.example.tushpStones.storage.YamlRegionStorage;
+import com.example.tushpStones.storage.YamlStorageBackend;
 import com.example.tushpStones.utils.RegionHologram;
+import com.example.tushpStones.utils.TaskScheduler;
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldguard.protection.managers.RegionManager;
@@ -12,84 +19,257 @@ import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Менеджер регионов
+ * На Folia события приходят из потоков разных областей мира, поэтому
+ * изменения набора регионов (создание, удаление, загрузка) выполняются под
+ * блокировкой менеджера, а поиск регионов идет по снимку без блокировок.
+ * Регионы WorldGuard тоже создаются и удаляются из этих потоков, поэтому
+ * на Folia нужны сборки WorldGuard и WorldEdit с ее поддержкой.
+ */
 public class TushpRegionManager {
 
     private final TushpStones plugin;
-    private final Map<String, ProtectedRegion> regions = new HashMap<>();
-    private final Map<String, RegionHologram> holograms = new HashMap<>();
+    private final Map<String, ProtectedRegion> regions = new ConcurrentHashMap<>();
+    private final Map<String, RegionHologram> holograms = new ConcurrentHashMap<>();
+    // Деревья и списки владельцев - только под блокировкой менеджера
+    private final Map<UUID, RegionTree> regionTrees = new HashMap<>();
+    // Регионы каждого владельца в порядке создания
+    private final Map<UUID, List<ProtectedRegion>> ownerRegions = new HashMap<>();
+    private final RegionLimitCache limitCache;
+    private final HologramVisibility hologramVisibility;
+    private final NameCache nameCache;
+    // Версия регионов для поиска из любого потока
+    private volatile RegionSnapshot snapshot = RegionSnapshot.EMPTY;
     private File regionsFile;
-    private FileConfiguration regionsConfig;
+    private StorageBackend storage;
 
     public TushpRegionManager(TushpStones plugin) {
         this.plugin = plugin;
+        this.limitCache = new RegionLimitCache(plugin);
+        this.hologramVisibility = new HologramVisibility(plugin, holograms, this::getSnapshot);
+        this.nameCache = new NameCache(plugin);
     }
 
     /**
-     * Загрузка регионов из файла
+     * Загрузка регионов из хранилища (storage.type)
+     * Данные другого типа хранилища переносятся автоматически
      */
-    public void loadRegions() {
+    public synchronized void loadRegions() {
         regionsFile = new File(plugin.getDataFolder(), "regions.yml");
 
-        if (!regionsFile.exists()) {
-            try {
-                regionsFile.createNewFile();
-            } catch (IOException e) {
-                plugin.getLogger().severe("Не удалось создать regions.yml: " + e.getMessage());
-                return;
+        regions.clear();
+        regionTrees.clear();
+        ownerRegions.clear();
+        snapshot = snapshot.cleared();
+
+        String storageType = plugin.getConfig().getString("storage.type", "yaml").toLowerCase(Locale.ROOT);
+        storage = createStorage(storageType);
+
+        if (!migrateRegions(storageType)) {
+            regions.putAll(storage.loadAll());
+        }
+
+        for (ProtectedRegion region : regions.values()) {
+            indexRegion(region);
+        }
+
+        // Порядок создания восстанавливаем по номеру в ID региона
+        for (List<ProtectedRegion> owned : ownerRegions.values()) {
+            owned.sort(Comparator.comparingInt(TushpRegionManager::regionNumber)
+                    .thenComparing(ProtectedRegion::getId));
+        }
+
+        plugin.getLogger().info("Загружено регионов: " + regions.size());
+
+        // Имена владельцев: сохраненные сразу, недостающие - в фоне
+        nameCache.load();
+        nameCache.warm(ownerRegions.keySet());
+
+        // Голограммы создаются только в уже загруженных чанках,
+        // остальные появятся при загрузке чанка (HologramListener).
+        // На Folia сущности мира недоступны из одного потока - старые голограммы
+        // удаляются при загрузке сущностей чанков
+        if (!TaskScheduler.isFolia()) {
+            for (World world : plugin.getServer().getWorlds()) {
+                sweepHologramEntities(world.getEntities());
             }
         }
+        reloadHolograms();
+    }
 
-        regionsConfig = YamlConfiguration.loadConfiguration(regionsFile);
-        regions.clear();
+    /**
+     * Пересоздать голограммы загруженных чанков (после смены настроек голограмм)
+     */
+    public void reloadHolograms() {
+        removeAllHolograms();
+        hologramVisibility.reload();
 
-        for (String key : regionsConfig.getKeys(false)) {
+        for (ProtectedRegion region : regions.values()) {
+            createHologram(region);
+        }
+    }
+
+    private StorageBackend createStorage(String type) {
+        long autoSaveSeconds = getFlushIntervalSeconds();
+
+        switch (type) {
+            case "mmap":
+                return new MappedRegionStore(plugin, new File(plugin.getDataFolder(), "regions.dat"));
+            case "sqlite":
+                return new SqliteStorageBackend(plugin, plugin.getDataFolder(), autoSaveSeconds);
+            case "journal":
+                return createYamlStorage(true);
+            case "yaml":
+                return createYamlStorage(false);
+            default:
+                plugin.getLogger().warning("Неизвестный тип хранилища " + type + ", используется yaml");
+                return createYamlStorage(false);
+        }
+    }
+
+    private YamlStorageBackend createYamlStorage(boolean journalMode) {
+        long autoSaveSeconds = getFlushIntervalSeconds();
+        long compactThreshold = plugin.getConfig().getLong("storage.journal.compact-threshold", 1024) * 1024L;
+        return new YamlStorageBackend(plugin, plugin.getDataFolder(), regions::values,
+                journalMode, autoSaveSeconds, compactThreshold);
+    }
+
+    /**
+     * Интервал фоновой записи хранилища (в секундах)
+     * Старый ключ auto-save-interval задавался в минутах, поэтому учитывается
+     * только если storage.flush-interval-seconds не указан
+     */
+    private long getFlushIntervalSeconds() {
+        FileConfiguration config = plugin.getConfig();
+        if (!config.isSet("storage.flush-interval-seconds") && config.isSet("auto-save-interval")) {
+            return config.getLong("auto-save-interval") * 60L;
+        }
+        return config.getLong("storage.flush-interval-seconds", 30);
+    }
+
+    /**
+     * Перенос регионов из хранилища другого типа
+     * Бинарные хранилища после переноса переименовываются в *.bak,
+     * regions.yml остается на месте как есть
+     * @return true, если регионы загружены при переносе
+     */
+    private boolean migrateRegions(String storageType) {
+        for (String type : new String[]{"mmap", "sqlite"}) {
+            if (type.equals(storageType)) continue;
+
+            StorageBackend previous = createStorage(type);
+            if (!previous.exists()) continue;
+
+            Map<String, ProtectedRegion> loaded = previous.loadAll();
+            if (loaded.isEmpty()) {
+                previous.close();
+                continue;
+            }
+
+            storage.replaceAll(loaded.values());
+            regions.putAll(loaded);
             try {
-                ProtectedRegion region = ProtectedRegion.deserialize(regionsConfig.getConfigurationSection(key));
-                if (region != null) {
-                    regions.put(key, region);
-                    // Создаем голограмму для загруженного региона
-                    createHologram(region);
-                }
-            } catch (Exception e) {
-                plugin.getLogger().warning("Ошибка загрузки региона " + key + ": " + e.getMessage());
+                previous.backup();
+                plugin.getLogger().info("Регионы перенесены из хранилища " + type + " в " + storageType);
+            } catch (IOException e) {
+                plugin.getLogger().severe("Не удалось переименовать хранилище " + type + ": " + e.getMessage());
             }
+            return true;
         }
 
-        plugin.getLogger().info("Загружено регионов: " + regions.size());
+        if (storage instanceof YamlStorageBackend || storage.exists()) {
+            return false;
+        }
+
+        // Однократная миграция regions.yml в новое хранилище
+        Map<String, ProtectedRegion> loaded = createYamlStorage(false).loadAll();
+        storage.replaceAll(loaded.values());
+        regions.putAll(loaded);
+        plugin.getLogger().info("Регионы перенесены из regions.yml в хранилище " + storageType);
+        return true;
     }
 
     /**
-     * Сохранение регионов
+     * Выгрузить все регионы в regions.yml независимо от типа хранилища
+     * @return Количество выгруженных регионов
      */
-    public void saveRegions() {
-        regionsConfig = new YamlConfiguration();
+    public int exportRegions() {
+        if (storage == null) return 0;
 
-        for (Map.Entry<String, ProtectedRegion> entry : regions.entrySet()) {
-            regionsConfig.createSection(entry.getKey(), entry.getValue().serialize());
+        if (storage instanceof YamlStorageBackend) {
+            storage.flush();
+        } else {
+            new YamlRegionStorage(plugin, regionsFile).write(YamlStorageBackend.snapshot(regions.values()));
         }
+        return regions.size();
+    }
 
-        try {
-            regionsConfig.save(regionsFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Не удалось сохранить regions.yml: " + e.getMessage());
+    /**
+     * Синхронная запись всех отложенных изменений
+     */
+    public void saveRegions() {
+        if (storage == null) return;
+
+        storage.flush();
+    }
+
+    /**
+     * Сохранить изменение региона
+     * Как и когда изменение попадет на диск, решает хранилище
+     */
+    public void markDirty(ProtectedRegion region, RegionChange change) {
+        if (storage == null) return;
+
+        storage.update(region, change);
+
+        if (change == RegionChange.MEMBERS || change == RegionChange.CO_OWNERS) {
+            hologramVisibility.onAccessChanged(region);
         }
     }
 
     /**
-     * Создание нового региона
+     * Запуск фоновых задач хранилища (автосохранение)
      */
-    public boolean createRegion(Player player, Location location, String blockType, int radius, int priority) {
-        String regionId = generateRegionId(player);
+    public void startAutoSave() {
+        if (storage == null) return;
+
+        storage.start();
+    }
+
+    /**
+     * Остановка хранилища и запись всех изменений на диск
+     */
+    public void shutdown() {
+        removeAllHolograms();
+        nameCache.save();
+
+        if (storage == null) return;
+
+        storage.close();
+    }
+
+    /**
+     * Хранилище регионов
+     */
+    public StorageBackend getStorage() {
+        return storage;
+    }
 
+    /**
+     * Создание нового региона
+     */
+    public synchronized boolean createRegion(Player player, Location location, String blockType, int radius, int priority) {
         // Проверка лимита регионов
         int currentRegions = getPlayerRegionsCount(player);
         int maxRegions = getMaxRegions(player);
@@ -98,6 +278,8 @@ public class TushpRegionManager {
             return false;
         }
 
+        String regionId = generateRegionId(player);
+
         World world = location.getWorld();
         if (world == null) return false;
 
@@ -158,8 +340,12 @@ public class TushpRegionManager {
                 );
             }
 
-            regions.put(regionId, region);
-            saveRegions();
+            ProtectedRegion previous = regions.put(regionId, region);
+            if (previous != null) {
+                unindexRegion(previous);
+            }
+            indexRegion(region);
+            markDirty(region, RegionChange.CREATE);
 
             // Создаем голограмму для нового региона
             createHologram(region);
@@ -175,7 +361,7 @@ public class TushpRegionManager {
     /**
      * Удаление региона
      */
-    public boolean removeRegion(String regionId) {
+    public synchronized boolean removeRegion(String regionId) {
         ProtectedRegion region = regions.get(regionId);
         if (region == null) return false;
 
@@ -196,7 +382,8 @@ public class TushpRegionManager {
             }
 
             regions.remove(regionId);
-            saveRegions();
+            unindexRegion(region);
+            markDirty(region, RegionChange.REMOVE);
             return true;
 
         } catch (Exception e) {
@@ -210,7 +397,7 @@ public class TushpRegionManager {
      */
     public void createHologram(ProtectedRegion region) {
         try {
-            if (!plugin.getConfig().getBoolean("holograms.enabled", true)) {
+            if (!plugin.getConfigManager().getSnapshot().isHologramsEnabled()) {
                 return;
             }
 
@@ -219,13 +406,34 @@ public class TushpRegionManager {
                 return;
             }
 
+            // Чанк не загружен - голограмма появится при его загрузке
+            Location center = region.getLocation();
+            World world = center.getWorld();
+            if (world == null || !world.isChunkLoaded(center.getBlockX() >> 4, center.getBlockZ() >> 4)) {
+                return;
+            }
+
+            // Сущность создается в потоке, владеющем центром региона
+            TaskScheduler scheduler = plugin.getTaskScheduler();
+            if (!scheduler.isOwnedByCurrentThread(center)) {
+                scheduler.runAt(center, () -> {
+                    // Регион могли удалить, пока задача ждала своего тика
+                    if (regions.get(region.getId()) == region) {
+                        createHologram(region);
+                    }
+                });
+                return;
+            }
+
             // Удаляем старую голограмму если есть
             removeHologram(region.getId());
 
             // Создаем новую
-            RegionHologram hologram = new RegionHologram(plugin, region);
-            hologram.create();
+            RegionHologram hologram = new RegionHologram(plugin, region, nameCache, plugin.getConfigManager(),
+                    plugin.getTaskScheduler());
+            hologram.create(hologramVisibility.isVisibleByDefault());
             holograms.put(region.getId(), hologram);
+            hologramVisibility.onSpawn(hologram);
 
         } catch (Exception e) {
             plugin.getLogger().warning("Ошибка создания голограммы: " + e.getMessage());
@@ -237,16 +445,95 @@ public class TushpRegionManager {
      */
     public void removeHologram(String regionId) {
         try {
-            RegionHologram hologram = holograms.get(regionId);
+            RegionHologram hologram = holograms.remove(regionId);
             if (hologram != null) {
                 hologram.remove();
-                holograms.remove(regionId);
+                hologramVisibility.onRemove(hologram);
             }
         } catch (Exception e) {
             plugin.getLogger().warning("Ошибка удаления голограммы: " + e.getMessage());
         }
     }
 
+    /**
+     * Создать голограммы регионов, центр которых находится в загруженном чанке
+     */
+    public void loadChunkHolograms(World world, int chunkX, int chunkZ) {
+        for (ProtectedRegion region : snapshot.getRegionsInChunk(world, chunkX, chunkZ)) {
+            if (isCenterInChunk(region, chunkX, chunkZ) && !holograms.containsKey(region.getId())) {
+                createHologram(region);
+            }
+        }
+    }
+
+    /**
+     * Удалить голограммы регионов, центр которых находится в выгружаемом чанке
+     */
+    public void unloadChunkHolograms(World world, int chunkX, int chunkZ) {
+        for (ProtectedRegion region : snapshot.getRegionsInChunk(world, chunkX, chunkZ)) {
+            if (isCenterInChunk(region, chunkX, chunkZ)) {
+                removeHologram(region.getId());
+            }
+        }
+    }
+
+    /**
+     * Удалить оставшиеся в мире голограммы, которые не принадлежат
+     * ни одной текущей голограмме (сбой сервера, ArmorStand прошлых версий)
+     */
+    public void sweepHologramEntities(Collection<? extends Entity> entities) {
+        int removed = 0;
+        for (Entity entity : entities) {
+            if (!RegionHologram.isHologramEntity(entity) || isResidentHologram(entity)) continue;
+
+            entity.remove();
+            removed++;
+        }
+
+        if (removed > 0) {
+            plugin.getLogger().info("Удалено старых голограмм: " + removed);
+        }
+    }
+
+    private boolean isResidentHologram(Entity entity) {
+        for (RegionHologram hologram : holograms.values()) {
+            if (entity.equals(hologram.getDisplay())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeAllHolograms() {
+        Iterator<RegionHologram> iterator = holograms.values().iterator();
+        while (iterator.hasNext()) {
+            RegionHologram hologram = iterator.next();
+            iterator.remove();
+            hologram.remove();
+        }
+    }
+
+    private static boolean isCenterInChunk(ProtectedRegion region, int chunkX, int chunkZ) {
+        Location center = region.getLocation();
+        return center.getBlockX() >> 4 == chunkX && center.getBlockZ() >> 4 == chunkZ;
+    }
+
+    /**
+     * Имя владельца стало известно или изменилось - обновляем его голограммы
+     */
+    void onOwnerNameChanged(UUID owner) {
+        List<ProtectedRegion> owned;
+        synchronized (this) {
+            List<ProtectedRegion> current = ownerRegions.get(owner);
+            if (current == null) return;
+            owned = new ArrayList<>(current);
+        }
+
+        for (ProtectedRegion region : owned) {
+            updateHologram(region.getId());
+        }
+    }
+
     /**
      * Обновить голограмму региона
      */
@@ -265,107 +552,150 @@ public class TushpRegionManager {
      * Получение региона по локации
      */
     public ProtectedRegion getRegionAtLocation(Location location) {
-        for (ProtectedRegion region : regions.values()) {
-            if (region.contains(location)) {
-                return region;
-            }
-        }
-        return null;
+        return snapshot.getRegionAt(location);
     }
 
     /**
-     * Получение всех регионов игрока
+     * Получение региона по его центральному блоку (null - блок не является блоком привата)
      */
-    public List<ProtectedRegion> getPlayerRegions(Player player) {
-        return regions.values().stream()
-                .filter(region -> region.getOwner().equals(player.getUniqueId()))
-                .collect(Collectors.toList());
+    public ProtectedRegion getRegionByCenter(Block block) {
+        return snapshot.getRegionByCenter(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Получение всех регионов игрока (копия списка в порядке создания)
+     */
+    public synchronized List<ProtectedRegion> getPlayerRegions(Player player) {
+        List<ProtectedRegion> owned = ownerRegions.get(player.getUniqueId());
+        return owned != null ? Collections.unmodifiableList(new ArrayList<>(owned)) : Collections.emptyList();
     }
 
     /**
      * Получение количества регионов игрока
      */
-    public int getPlayerRegionsCount(Player player) {
-        return (int) regions.values().stream()
-                .filter(region -> region.getOwner().equals(player.getUniqueId()))
-                .count();
+    public synchronized int getPlayerRegionsCount(Player player) {
+        List<ProtectedRegion> owned = ownerRegions.get(player.getUniqueId());
+        return owned != null ? owned.size() : 0;
     }
 
     /**
      * Генерация уникального ID региона
+     * Номер берется больше всех существующих, а не по количеству регионов,
+     * чтобы после удаления региона ID не совпал с оставшимся
      */
     private String generateRegionId(Player player) {
-        int count = getPlayerRegionsCount(player);
-        return "ps_" + player.getName().toLowerCase() + "_" + count;
+        String prefix = "ps_" + player.getName().toLowerCase() + "_";
+
+        int next = 0;
+        for (ProtectedRegion region : getPlayerRegions(player)) {
+            next = Math.max(next, regionNumber(region) + 1);
+        }
+
+        while (regions.containsKey(prefix + next)) {
+            next++;
+        }
+        return prefix + next;
     }
 
     /**
-     * Получение максимального количества регионов для игрока
+     * Номер региона из ID вида ps_ник_номер (-1, если номера нет)
      */
-    private int getMaxRegions(Player player) {
-        // Проверка на безлимитное право
-        if (player.hasPermission("tushpstones.limit.unlimited")) {
-            return -1; // -1 = без лимита
-        }
+    private static int regionNumber(ProtectedRegion region) {
+        String id = region.getId();
+        int separator = id.lastIndexOf('_');
+        if (separator < 0) return -1;
 
-        // Проверка специфичных лимитов
-        for (int i = 100; i >= 1; i--) {
-            if (player.hasPermission("tushpstones.limit." + i)) {
-                return i;
-            }
+        try {
+            return Integer.parseInt(id.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
         }
+    }
 
-        // Лимит по умолчанию из конфига
-        return plugin.getConfig().getInt("default-region-limit", 3);
+    /**
+     * Получение максимального количества регионов для игрока
+     */
+    private int getMaxRegions(Player player) {
+        return limitCache.getLimit(player);
     }
 
     /**
      * Проверка на пересечение нового региона с существующими
+     * Учитывает prevent-region-overlap и minimum-region-distance из config.yml
      * @param location Локация центра нового региона
      * @param radius Радиус нового региона
      * @param world Мир региона
      * @return true если есть пересечение, false если нет
      */
     private boolean checkRegionOverlap(Location location, int radius, World world) {
-        // Границы нового региона
-        double newMinX = location.getX() - radius;
-        double newMaxX = location.getX() + radius;
-        double newMinY = location.getY() - radius;
-        double newMaxY = location.getY() + radius;
-        double newMinZ = location.getZ() - radius;
-        double newMaxZ = location.getZ() + radius;
-
-        for (ProtectedRegion existingRegion : regions.values()) {
-            // Пропускаем регионы в других мирах
-            if (!existingRegion.getLocation().getWorld().equals(world)) {
-                continue;
-            }
+        ConfigSnapshot settings = plugin.getConfigManager().getSnapshot();
+        if (!settings.isPreventRegionOverlap()) {
+            return false;
+        }
 
-            // Границы существующего региона
-            Location existingLoc = existingRegion.getLocation();
-            double existingRadius = existingRegion.getRadius();
-            double existingMinX = existingLoc.getX() - existingRadius;
-            double existingMaxX = existingLoc.getX() + existingRadius;
-            double existingMinY = existingLoc.getY() - existingRadius;
-            double existingMaxY = existingLoc.getY() + existingRadius;
-            double existingMinZ = existingLoc.getZ() - existingRadius;
-            double existingMaxZ = existingLoc.getZ() + existingRadius;
-
-            // Проверка пересечения по всем трем осям
-            boolean xOverlap = newMinX < existingMaxX && newMaxX > existingMinX;
-            boolean yOverlap = newMinY < existingMaxY && newMaxY > existingMinY;
-            boolean zOverlap = newMinZ < existingMaxZ && newMaxZ > existingMinZ;
-
-            // Если пересекаются по всем трем осям - регионы пересекаются
-            if (xOverlap && yOverlap && zOverlap) {
-                return true;
+        RegionTree tree = regionTrees.get(world.getUID());
+        if (tree == null) {
+            return false;
+        }
+
+        // Расширяем куб на минимальное расстояние между регионами
+        int padding = radius + settings.getMinimumRegionDistance();
+
+        return tree.intersects(
+                location.getBlockX() - padding,
+                location.getBlockY() - padding,
+                location.getBlockZ() - padding,
+                location.getBlockX() + padding,
+                location.getBlockY() + padding,
+                location.getBlockZ() + padding
+        );
+    }
+
+    /**
+     * Добавить регион во все пространственные индексы
+     */
+    private void indexRegion(ProtectedRegion region) {
+        snapshot = snapshot.withRegion(region);
+        ownerRegions.computeIfAbsent(region.getOwner(), k -> new ArrayList<>()).add(region);
+
+        World world = region.getLocation().getWorld();
+        if (world != null) {
+            regionTrees.computeIfAbsent(world.getUID(), k -> new RegionTree()).insert(region);
+        }
+    }
+
+    /**
+     * Удалить регион из всех пространственных индексов
+     */
+    private void unindexRegion(ProtectedRegion region) {
+        snapshot = snapshot.withoutRegion(region);
+
+        List<ProtectedRegion> owned = ownerRegions.get(region.getOwner());
+        if (owned != null) {
+            owned.remove(region);
+            if (owned.isEmpty()) {
+                ownerRegions.remove(region.getOwner());
             }
         }
 
-        return false;
+        World world = region.getLocation().getWorld();
+        if (world == null) return;
+
+        RegionTree tree = regionTrees.get(world.getUID());
+        if (tree != null) {
+            tree.remove(region);
+            if (tree.isEmpty()) {
+                regionTrees.remove(world.getUID());
+            }
+        }
     }
 
     // Геттеры
+
+    /**
+     * Все регионы по ID (изменяет только менеджер)
+     * Для поиска по координатам используйте {@link #getSnapshot()}
+     */
     public Map<String, ProtectedRegion> getRegions() {
         return regions;
     }
@@ -374,7 +704,29 @@ public class TushpRegionManager {
         return regions.get(id);
     }
 
+    /**
+     * Текущая версия регионов: безопасна для чтения из любого потока
+     */
+    public RegionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Голограммы - сущности: изменять их можно только в потоке их области
+     */
     public Map<String, RegionHologram> getHolograms() {
         return holograms;
     }
+
+    public RegionLimitCache getLimitCache() {
+        return limitCache;
+    }
+
+    public NameCache getNameCache() {
+        return nameCache;
+    }
+
+    public HologramVisibility getHologramVisibility() {
+        return hologramVisibility;
+    }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Модель защищенного региона
@@ -35,8 +36,11 @@ public class ProtectedRegion {
         this.radius = radius;
         this.blockType = blockType;
         this.priority = priority;
-        this.members = members;
-        this.coOwners = coOwners;
+        // Участников меняют команды, а читают обработчики других областей мира (Folia)
+        this.members = ConcurrentHashMap.newKeySet();
+        this.members.addAll(members);
+        this.coOwners = ConcurrentHashMap.newKeySet();
+        this.coOwners.addAll(coOwners);
         this.hidden = false;
         // Значения по умолчанию для прочности (будут перезаписаны при загрузке)
         this.healthEnabled = false;
@@ -52,7 +56,17 @@ public class ProtectedRegion {
             return false;
         }
 
-        return loc.distance(location) <= radius;
+        return loc.distanceSquared(location) <= (double) radius * radius;
+    }
+
+    /**
+     * Проверка, находится ли блок в регионе (мир не проверяется)
+     */
+    public boolean containsBlock(int x, int y, int z) {
+        long dx = x - location.getBlockX();
+        long dy = y - location.getBlockY();
+        long dz = z - location.getBlockZ();
+        return dx * dx + dy * dy + dz * dz <= (long) radius * radius;
     }
 
     /**
@@ -0,0 +1,591 @@
+package com.example.tushpStones.storage;
+
+import com.example.tushpStones.models.ProtectedRegion;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Бинарное хранилище регионов в отображаемом в память файле
+ *
+ * regions.dat - заголовок и записи фиксированного размера, изменения
+ * (например прочность) пишутся прямо в отображенную память.
+ * regions.dat.ext - куча переменных данных (id, мир, тип блока, списки
+ * участников), записи ссылаются на нее по смещению. Куча только дописывается,
+ * мусор от старых списков участников убирается пересборкой при загрузке.
+ */
+public class MappedRegionStore implements StorageBackend {
+
+    private static final int MAGIC = 0x54535244; // "TSRD"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_HIGH_WATER = 12;
+
+    // Раскладка записи
+    private static final int RECORD_SIZE = 64;
+    private static final int FLAGS = 0;
+    private static final int ID_REF = 4;
+    private static final int OWNER_MOST = 8;
+    private static final int OWNER_LEAST = 16;
+    private static final int WORLD_REF = 24;
+    private static final int BLOCK_TYPE_REF = 28;
+    private static final int CENTER = 32;
+    private static final int RADIUS = 40;
+    private static final int PRIORITY = 44;
+    private static final int CURRENT_HEALTH = 48;
+    private static final int MAX_HEALTH = 52;
+    private static final int MEMBERS_REF = 56;
+
+    private static final int FLAG_IN_USE = 1;
+    private static final int FLAG_HIDDEN = 2;
+    private static final int FLAG_HEALTH_ENABLED = 4;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_REF = -1;
+
+    private final Plugin plugin;
+    private final File dataFile;
+    private final File extFile;
+
+    private FileChannel dataChannel;
+    private FileChannel extChannel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int highWater;
+    private long extSize;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    // Уже записанные в кучу строки (миры и типы блоков повторяются)
+    private final Map<String, Integer> internedStrings = new HashMap<>();
+
+    public MappedRegionStore(Plugin plugin, File dataFile) {
+        this.plugin = plugin;
+        this.dataFile = dataFile;
+        this.extFile = new File(dataFile.getPath() + ".ext");
+    }
+
+    @Override
+    public boolean exists() {
+        return dataFile.exists() && extFile.exists();
+    }
+
+    @Override
+    public Map<String, ProtectedRegion> loadAll() {
+        try {
+            return load();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Не удалось загрузить " + dataFile.getName() + ": " + e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Открыть файл и прочитать все регионы
+     * Если куча заметно разрослась от мусора, хранилище пересобирается
+     */
+    public Map<String, ProtectedRegion> load() throws IOException {
+        open();
+
+        Map<String, ProtectedRegion> regions = new LinkedHashMap<>();
+        Map<Integer, String> strings = new HashMap<>();
+        long liveExtBytes = 0;
+        boolean skipped = false;
+
+        MappedByteBuffer ext = extChannel.map(FileChannel.MapMode.READ_ONLY, 0, extSize);
+
+        for (int slot = 0; slot < highWater; slot++) {
+            int base = recordOffset(slot);
+
+            if ((buffer.getInt(base + FLAGS) & FLAG_IN_USE) == 0) {
+                freeSlots.push(slot);
+                continue;
+            }
+
+            ProtectedRegion region = readRecord(buffer, slot, ext, strings);
+            if (region == null) {
+                // Мир не загружен: запись остается в файле, но слот не используется
+                skipped = true;
+                continue;
+            }
+
+            int membersRef = buffer.getInt(base + MEMBERS_REF);
+            if (membersRef != NO_REF) {
+                liveExtBytes += 8 + (region.getMembers().size() + region.getCoOwners().size()) * 16L;
+            }
+
+            regions.put(region.getId(), region);
+            slots.put(region.getId(), slot);
+            liveExtBytes += 4 + region.getId().length();
+        }
+
+        for (Map.Entry<Integer, String> entry : strings.entrySet()) {
+            internedStrings.putIfAbsent(entry.getValue(), entry.getKey());
+        }
+
+        // Пересборка потеряла бы записи незагруженных миров
+        if (!skipped && extSize > liveExtBytes * 2 + 65536) {
+            plugin.getLogger().info("Пересборка " + dataFile.getName() + " (накопился мусор в куче)");
+            rebuild(regions.values());
+        }
+
+        return regions;
+    }
+
+    /**
+     * Перебор записей прямо по слотам отображения без изменения состояния
+     * Закрытое хранилище отображается только для чтения на время перебора
+     */
+    @Override
+    public void forEach(Consumer<ProtectedRegion> action) {
+        try {
+            ByteBuffer records;
+            ByteBuffer ext;
+            int count;
+
+            synchronized (this) {
+                if (buffer != null) {
+                    records = buffer.duplicate();
+                    ext = extChannel.map(FileChannel.MapMode.READ_ONLY, 0, extSize);
+                    count = highWater;
+                } else {
+                    records = null;
+                    ext = null;
+                    count = 0;
+                }
+            }
+
+            if (records == null) {
+                if (!exists()) return;
+
+                try (FileChannel data = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ);
+                     FileChannel heap = FileChannel.open(extFile.toPath(), StandardOpenOption.READ)) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                    data.read(header, 0);
+                    if (header.getInt(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_VERSION) != VERSION) {
+                        throw new IOException("неизвестный формат файла " + dataFile.getName());
+                    }
+
+                    count = header.getInt(HEADER_HIGH_WATER);
+                    records = data.map(FileChannel.MapMode.READ_ONLY, 0, recordOffset(count));
+                    ext = heap.map(FileChannel.MapMode.READ_ONLY, 0, heap.size());
+                }
+            }
+
+            Map<Integer, String> strings = new HashMap<>();
+            for (int slot = 0; slot < count; slot++) {
+                if ((records.getInt(recordOffset(slot) + FLAGS) & FLAG_IN_USE) == 0) {
+                    continue;
+                }
+
+                ProtectedRegion region = readRecord(records, slot, ext, strings);
+                if (region != null) {
+                    action.accept(region);
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Не удалось прочитать " + dataFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void upsert(ProtectedRegion region) {
+        write(region, RegionChange.CREATE);
+    }
+
+    @Override
+    public void delete(ProtectedRegion region) {
+        write(region, RegionChange.REMOVE);
+    }
+
+    @Override
+    public void update(ProtectedRegion region, RegionChange change) {
+        write(region, change);
+    }
+
+    @Override
+    public void replaceAll(Collection<ProtectedRegion> regions) {
+        try {
+            rebuild(regions);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Не удалось пересоздать " + dataFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void flush() {
+        force();
+    }
+
+    /**
+     * Полностью пересоздать хранилище из переданных регионов
+     * Используется для миграции из regions.yml и очистки кучи
+     */
+    public void rebuild(Collection<ProtectedRegion> regions) throws IOException {
+        close();
+
+        // Пишем во временные файлы, затем атомарно подменяем
+        MappedRegionStore temp = new MappedRegionStore(plugin, new File(dataFile.getPath() + ".tmp"));
+        Files.deleteIfExists(temp.dataFile.toPath());
+        Files.deleteIfExists(temp.extFile.toPath());
+
+        temp.create(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, regions.size())) << 1));
+        for (ProtectedRegion region : regions) {
+            temp.write(region, RegionChange.CREATE);
+        }
+
+        Map<String, Integer> newSlots = new HashMap<>(temp.slots);
+        Map<String, Integer> newStrings = new HashMap<>(temp.internedStrings);
+        temp.close();
+
+        move(temp.extFile, extFile);
+        move(temp.dataFile, dataFile);
+
+        open();
+        slots.putAll(newSlots);
+        internedStrings.putAll(newStrings);
+    }
+
+    /**
+     * Записать изменение региона прямо в отображенную память
+     */
+    public synchronized void write(ProtectedRegion region, RegionChange change) {
+        try {
+            Integer slot = slots.get(region.getId());
+
+            switch (change) {
+                case CREATE:
+                    if (slot == null) {
+                        slot = allocateSlot();
+                        slots.put(region.getId(), slot);
+                    }
+                    writeRecord(slot, region);
+                    break;
+                case REMOVE:
+                    if (slot == null) return;
+                    buffer.putInt(recordOffset(slot) + FLAGS, 0);
+                    slots.remove(region.getId());
+                    freeSlots.push(slot);
+                    break;
+                case HEALTH:
+                    if (slot == null) return;
+                    int base = recordOffset(slot);
+                    buffer.putInt(base + CURRENT_HEALTH, region.getCurrentHealth());
+                    buffer.putInt(base + MAX_HEALTH, region.getMaxHealth());
+                    buffer.putInt(base + FLAGS, flags(region));
+                    break;
+                case MEMBERS:
+                case CO_OWNERS:
+                    if (slot == null) return;
+                    buffer.putInt(recordOffset(slot) + MEMBERS_REF, appendMembers(region));
+                    break;
+                case HIDDEN:
+                    if (slot == null) return;
+                    buffer.putInt(recordOffset(slot) + FLAGS, flags(region));
+                    break;
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Не удалось записать регион " + region.getId() + " в "
+                    + dataFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Сбросить отображенную память на диск
+     */
+    public synchronized void force() {
+        try {
+            if (buffer != null) {
+                buffer.force();
+            }
+            if (extChannel != null) {
+                extChannel.force(false);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Не удалось сбросить " + dataFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+        try {
+            if (dataChannel != null) dataChannel.close();
+            if (extChannel != null) extChannel.close();
+        } catch (IOException ignored) {
+        }
+        dataChannel = null;
+        extChannel = null;
+        buffer = null;
+        slots.clear();
+        freeSlots.clear();
+        internedStrings.clear();
+    }
+
+    /**
+     * Переименовать файлы хранилища в резервную копию
+     */
+    @Override
+    public void backup() throws IOException {
+        close();
+        move(dataFile, new File(dataFile.getPath() + ".bak"));
+        move(extFile, new File(extFile.getPath() + ".bak"));
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // ФАЙЛЫ И ОТОБРАЖЕНИЕ
+    // ═══════════════════════════════════════════════════════════
+
+    private void open() throws IOException {
+        dataChannel = new RandomAccessFile(dataFile, "rw").getChannel();
+        extChannel = new RandomAccessFile(extFile, "rw").getChannel();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        dataChannel.read(header, 0);
+
+        if (header.getInt(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_VERSION) != VERSION) {
+            close();
+            throw new IOException("неизвестный формат файла " + dataFile.getName());
+        }
+
+        capacity = header.getInt(HEADER_CAPACITY);
+        highWater = header.getInt(HEADER_HIGH_WATER);
+        extSize = extChannel.size();
+        buffer = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, recordOffset(capacity));
+    }
+
+    private void create(int initialCapacity) throws IOException {
+        dataChannel = new RandomAccessFile(dataFile, "rw").getChannel();
+        extChannel = new RandomAccessFile(extFile, "rw").getChannel();
+        extSize = 0;
+        highWater = 0;
+        capacity = initialCapacity;
+
+        buffer = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, recordOffset(capacity));
+        buffer.putInt(HEADER_MAGIC, MAGIC);
+        buffer.putInt(HEADER_VERSION, VERSION);
+        buffer.putInt(HEADER_CAPACITY, capacity);
+        buffer.putInt(HEADER_HIGH_WATER, highWater);
+    }
+
+    private int allocateSlot() throws IOException {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.pop();
+        }
+
+        if (highWater >= capacity) {
+            // Файл растет вдвое, отображение пересоздается
+            capacity *= 2;
+            buffer.force();
+            buffer = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, recordOffset(capacity));
+            buffer.putInt(HEADER_CAPACITY, capacity);
+        }
+
+        int slot = highWater++;
+        buffer.putInt(HEADER_HIGH_WATER, highWater);
+        return slot;
+    }
+
+    private static int recordOffset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // ЗАПИСИ
+    // ═══════════════════════════════════════════════════════════
+
+    private void writeRecord(int slot, ProtectedRegion region) throws IOException {
+        int base = recordOffset(slot);
+        Location location = region.getLocation();
+
+        buffer.putInt(base + ID_REF, appendString(region.getId()));
+        buffer.putLong(base + OWNER_MOST, region.getOwner().getMostSignificantBits());
+        buffer.putLong(base + OWNER_LEAST, region.getOwner().getLeastSignificantBits());
+        buffer.putInt(base + WORLD_REF, internString(location.getWorld().getName()));
+        buffer.putInt(base + BLOCK_TYPE_REF, internString(region.getBlockType()));
+        buffer.putLong(base + CENTER, pack(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        buffer.putInt(base + RADIUS, region.getRadius());
+        buffer.putInt(base + PRIORITY, region.getPriority());
+        buffer.putInt(base + CURRENT_HEALTH, region.getCurrentHealth());
+        buffer.putInt(base + MAX_HEALTH, region.getMaxHealth());
+        buffer.putInt(base + MEMBERS_REF, appendMembers(region));
+
+        // Флаги пишутся последними: запись становится активной только целиком
+        buffer.putInt(base + FLAGS, flags(region));
+    }
+
+    /**
+     * Прочитать запись в регион
+     * @return null, если мир региона не загружен
+     */
+    private ProtectedRegion readRecord(ByteBuffer buffer, int slot, ByteBuffer ext, Map<Integer, String> strings) {
+        int base = recordOffset(slot);
+        int flags = buffer.getInt(base + FLAGS);
+
+        String id = readString(ext, buffer.getInt(base + ID_REF), strings);
+        String worldName = readString(ext, buffer.getInt(base + WORLD_REF), strings);
+
+        World world = Bukkit.getWorld(worldName);
+        if (world == null) {
+            plugin.getLogger().warning("Мир " + worldName + " для региона " + id + " не найден");
+            return null;
+        }
+
+        long center = buffer.getLong(base + CENTER);
+        Location location = new Location(world, unpackX(center), unpackY(center), unpackZ(center));
+
+        Set<UUID> members = new HashSet<>();
+        Set<UUID> coOwners = new HashSet<>();
+        int membersRef = buffer.getInt(base + MEMBERS_REF);
+        if (membersRef != NO_REF) {
+            readMembers(ext, membersRef, members, coOwners);
+        }
+
+        ProtectedRegion region = new ProtectedRegion(
+                id,
+                new UUID(buffer.getLong(base + OWNER_MOST), buffer.getLong(base + OWNER_LEAST)),
+                location,
+                buffer.getInt(base + RADIUS),
+                readString(ext, buffer.getInt(base + BLOCK_TYPE_REF), strings),
+                buffer.getInt(base + PRIORITY),
+                members,
+                coOwners
+        );
+        region.setHidden((flags & FLAG_HIDDEN) != 0);
+        region.setHealthEnabled((flags & FLAG_HEALTH_ENABLED) != 0);
+        region.setCurrentHealth(buffer.getInt(base + CURRENT_HEALTH));
+        region.setMaxHealth(buffer.getInt(base + MAX_HEALTH));
+        return region;
+    }
+
+    private static int flags(ProtectedRegion region) {
+        int flags = FLAG_IN_USE;
+        if (region.isHidden()) flags |= FLAG_HIDDEN;
+        if (region.isHealthEnabled()) flags |= FLAG_HEALTH_ENABLED;
+        return flags;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // КУЧА ПЕРЕМЕННЫХ ДАННЫХ
+    // ═══════════════════════════════════════════════════════════
+
+    private int internString(String value) throws IOException {
+        Integer ref = internedStrings.get(value);
+        if (ref == null) {
+            ref = appendString(value);
+            internedStrings.put(value, ref);
+        }
+        return ref;
+    }
+
+    private int appendString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(4 + bytes.length);
+        entry.putInt(bytes.length).put(bytes).flip();
+        return appendExt(entry);
+    }
+
+    private int appendMembers(ProtectedRegion region) throws IOException {
+        Set<UUID> members = region.getMembers();
+        Set<UUID> coOwners = region.getCoOwners();
+        if (members.isEmpty() && coOwners.isEmpty()) {
+            return NO_REF;
+        }
+
+        ByteBuffer entry = ByteBuffer.allocate(8 + (members.size() + coOwners.size()) * 16);
+        entry.putInt(members.size()).putInt(coOwners.size());
+        for (UUID uuid : members) {
+            entry.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        }
+        for (UUID uuid : coOwners) {
+            entry.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        }
+        entry.flip();
+        return appendExt(entry);
+    }
+
+    private int appendExt(ByteBuffer entry) throws IOException {
+        if (extSize + entry.remaining() > Integer.MAX_VALUE) {
+            throw new IOException("куча " + extFile.getName() + " переполнена");
+        }
+
+        int offset = (int) extSize;
+        long position = extSize;
+        while (entry.hasRemaining()) {
+            position += extChannel.write(entry, position);
+        }
+        extSize = position;
+        return offset;
+    }
+
+    private static String readString(ByteBuffer ext, int ref, Map<Integer, String> cache) {
+        String cached = cache.get(ref);
+        if (cached != null) return cached;
+
+        byte[] bytes = new byte[ext.getInt(ref)];
+        ext.get(ref + 4, bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        cache.put(ref, value);
+        return value;
+    }
+
+    private static void readMembers(ByteBuffer ext, int ref, Set<UUID> members, Set<UUID> coOwners) {
+        int memberCount = ext.getInt(ref);
+        int coOwnerCount = ext.getInt(ref + 4);
+        int position = ref + 8;
+
+        for (int i = 0; i < memberCount; i++, position += 16) {
+            members.add(new UUID(ext.getLong(position), ext.getLong(position + 8)));
+        }
+        for (int i = 0; i < coOwnerCount; i++, position += 16) {
+            coOwners.add(new UUID(ext.getLong(position), ext.getLong(position + 8)));
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // УПАКОВКА КООРДИНАТ (x: 26 бит, z: 26 бит, y: 12 бит)
+    // ═══════════════════════════════════════════════════════════
+
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    private static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    private static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+}
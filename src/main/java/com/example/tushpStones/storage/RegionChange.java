@@ -0,0 +1,13 @@
+package com.example.tushpStones.storage;
+
+/**
+ * Тип изменения региона для хранилища
+ */
+public enum RegionChange {
+    CREATE,
+    REMOVE,
+    HEALTH,
+    MEMBERS,
+    CO_OWNERS,
+    HIDDEN
+}
@@ -0,0 +1,317 @@
+package com.example.tushpStones.storage;
+
+import com.example.tushpStones.models.ProtectedRegion;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Журнал изменений регионов (только дозапись)
+ * Каждое изменение пишется отдельной короткой записью, а полный снимок
+ * regions.yml перезаписывается только при сжатии журнала.
+ *
+ * Формат записи: int длина, byte тип, UTF id, данные изменения.
+ * Все записи идемпотентны (хранят итоговое значение), поэтому повторное
+ * применение журнала поверх уже сжатого снимка безопасно.
+ */
+public class RegionJournal {
+
+    private final Plugin plugin;
+    private final File file;
+    private final YamlRegionStorage storage;
+    private final long compactThreshold;
+
+    // Размер журнала с учетом еще не записанных записей (под блокировкой хранилища)
+    private long size;
+    // Поток дозаписи (только поток записи)
+    private DataOutputStream output;
+
+    public RegionJournal(Plugin plugin, File file, YamlRegionStorage storage, long compactThreshold) {
+        this.plugin = plugin;
+        this.file = file;
+        this.storage = storage;
+        this.compactThreshold = compactThreshold;
+        this.size = file.length();
+    }
+
+    /**
+     * Нет ли на диске записей журнала
+     */
+    public boolean isEmpty() {
+        return !file.exists() || file.length() == 0;
+    }
+
+    /**
+     * Применить журнал к загруженным из снимка регионам
+     * Файл журнала только читается
+     * @return Количество примененных записей
+     */
+    public int replay(Map<String, ProtectedRegion> regions) {
+        if (!file.exists() || file.length() == 0) {
+            return 0;
+        }
+
+        int applied = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                byte[] data = new byte[length];
+                try {
+                    in.readFully(data);
+                } catch (EOFException e) {
+                    // Обрезанная последняя запись (сбой во время записи)
+                    plugin.getLogger().warning("Журнал регионов обрывается на неполной записи, она пропущена");
+                    break;
+                }
+
+                try {
+                    apply(regions, new DataInputStream(new ByteArrayInputStream(data)));
+                    applied++;
+                } catch (IOException | RuntimeException e) {
+                    plugin.getLogger().warning("Ошибка применения записи журнала: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Не удалось прочитать " + file.getName() + ": " + e.getMessage());
+        }
+
+        return applied;
+    }
+
+    /**
+     * Добавить запись об изменении региона
+     * Запись кодируется в потоке изменения, а на диск уходит в потоке записи
+     */
+    public void append(ProtectedRegion region, RegionChange change) {
+        byte[] record;
+        try {
+            record = encode(region, change);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Ошибка кодирования записи журнала: " + e.getMessage());
+            return;
+        }
+
+        size += 4 + record.length;
+        storage.execute(() -> write(record));
+    }
+
+    /**
+     * Превышен ли порог размера журнала
+     */
+    public boolean needsCompaction() {
+        return size >= compactThreshold;
+    }
+
+    /**
+     * Сжатие в фоне: записать снимок и очистить журнал
+     * Все записи, поставленные до вызова, уже входят в снимок
+     */
+    public void compactAsync(Map<String, Map<String, Object>> snapshot) {
+        size = 0;
+        storage.execute(() -> {
+            storage.write(snapshot);
+            truncate();
+        });
+    }
+
+    /**
+     * Синхронное сжатие (после остановки потока записи)
+     */
+    public void compact(Map<String, Map<String, Object>> snapshot) {
+        size = 0;
+        storage.write(snapshot);
+        truncate();
+    }
+
+    /**
+     * Закрыть поток дозаписи
+     */
+    public void close() {
+        closeOutput();
+    }
+
+    private void write(byte[] record) {
+        try {
+            if (output == null) {
+                output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            }
+            output.writeInt(record.length);
+            output.write(record);
+            output.flush();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Не удалось записать " + file.getName() + ": " + e.getMessage());
+            closeOutput();
+        }
+    }
+
+    private void truncate() {
+        closeOutput();
+        try (FileOutputStream ignored = new FileOutputStream(file, false)) {
+            // Открытие без дозаписи обнуляет файл
+        } catch (IOException e) {
+            plugin.getLogger().severe("Не удалось очистить " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void closeOutput() {
+        if (output == null) return;
+        try {
+            output.close();
+        } catch (IOException ignored) {
+        }
+        output = null;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // КОДИРОВАНИЕ ЗАПИСЕЙ
+    // ═══════════════════════════════════════════════════════════
+
+    private static byte[] encode(ProtectedRegion region, RegionChange change) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(change == RegionChange.CREATE ? 128 : 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(change.ordinal());
+        out.writeUTF(region.getId());
+
+        switch (change) {
+            case CREATE:
+                Location location = region.getLocation();
+                writeUuid(out, region.getOwner());
+                out.writeUTF(location.getWorld().getName());
+                out.writeDouble(location.getX());
+                out.writeDouble(location.getY());
+                out.writeDouble(location.getZ());
+                out.writeInt(region.getRadius());
+                out.writeUTF(region.getBlockType());
+                out.writeInt(region.getPriority());
+                out.writeBoolean(region.isHidden());
+                writeHealth(out, region);
+                writeUuids(out, region.getMembers());
+                writeUuids(out, region.getCoOwners());
+                break;
+            case REMOVE:
+                break;
+            case HEALTH:
+                writeHealth(out, region);
+                break;
+            case MEMBERS:
+                writeUuids(out, region.getMembers());
+                break;
+            case CO_OWNERS:
+                writeUuids(out, region.getCoOwners());
+                break;
+            case HIDDEN:
+                out.writeBoolean(region.isHidden());
+                break;
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void apply(Map<String, ProtectedRegion> regions, DataInputStream in) throws IOException {
+        RegionChange change = RegionChange.values()[in.readUnsignedByte()];
+        String id = in.readUTF();
+
+        if (change == RegionChange.CREATE) {
+            UUID owner = readUuid(in);
+            String worldName = in.readUTF();
+            double x = in.readDouble();
+            double y = in.readDouble();
+            double z = in.readDouble();
+            int radius = in.readInt();
+            String blockType = in.readUTF();
+            int priority = in.readInt();
+            boolean hidden = in.readBoolean();
+
+            World world = Bukkit.getWorld(worldName);
+            if (world == null) return;
+
+            ProtectedRegion region = new ProtectedRegion(
+                    id, owner, new Location(world, x, y, z), radius, blockType, priority,
+                    new HashSet<>(), new HashSet<>()
+            );
+            region.setHidden(hidden);
+            readHealth(in, region);
+            region.getMembers().addAll(readUuids(in));
+            region.getCoOwners().addAll(readUuids(in));
+
+            regions.put(id, region);
+            return;
+        }
+
+        if (change == RegionChange.REMOVE) {
+            regions.remove(id);
+            return;
+        }
+
+        ProtectedRegion region = regions.get(id);
+        if (region == null) return;
+
+        switch (change) {
+            case HEALTH:
+                readHealth(in, region);
+                break;
+            case MEMBERS:
+                region.getMembers().clear();
+                region.getMembers().addAll(readUuids(in));
+                break;
+            case CO_OWNERS:
+                region.getCoOwners().clear();
+                region.getCoOwners().addAll(readUuids(in));
+                break;
+            case HIDDEN:
+                region.setHidden(in.readBoolean());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void writeHealth(DataOutputStream out, ProtectedRegion region) throws IOException {
+        out.writeBoolean(region.isHealthEnabled());
+        out.writeInt(region.getCurrentHealth());
+        out.writeInt(region.getMaxHealth());
+    }
+
+    private static void readHealth(DataInputStream in, ProtectedRegion region) throws IOException {
+        region.setHealthEnabled(in.readBoolean());
+        region.setCurrentHealth(in.readInt());
+        region.setMaxHealth(in.readInt());
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeUuids(DataOutputStream out, Set<UUID> uuids) throws IOException {
+        out.writeShort(uuids.size());
+        for (UUID uuid : uuids) {
+            writeUuid(out, uuid);
+        }
+    }
+
+    private static List<UUID> readUuids(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        List<UUID> uuids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uuids.add(readUuid(in));
+        }
+        return uuids;
+    }
+}
@@ -0,0 +1,583 @@
+package com.example.tushpStones.storage;
+
+import com.example.tushpStones.models.ProtectedRegion;
+import com.example.tushpStones.utils.TaskScheduler;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище в regions.db (SQLite, драйвер поставляется вместе с Paper)
+ *
+ * Изменения накапливаются по ID региона и записываются одной транзакцией:
+ * изменение здоровья - это UPDATE одной строки, а не перезапись всех регионов.
+ * Все обращения к базе выполняются в отдельном потоке.
+ */
+public class SqliteStorageBackend implements StorageBackend {
+
+    private static final int ROLE_MEMBER = 0;
+    private static final int ROLE_CO_OWNER = 1;
+
+    // Сколько прочитанных регионов может ждать перебора
+    private static final int READ_AHEAD = 256;
+    private static final Object END_OF_ROWS = new Object();
+
+    private static final String UPSERT_REGION =
+            "INSERT INTO regions (id, owner, world, x, y, z, radius, block_type, priority, hidden, " +
+            "health_enabled, current_health, max_health) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT(id) DO UPDATE SET owner = excluded.owner, world = excluded.world, x = excluded.x, " +
+            "y = excluded.y, z = excluded.z, radius = excluded.radius, block_type = excluded.block_type, " +
+            "priority = excluded.priority, hidden = excluded.hidden, health_enabled = excluded.health_enabled, " +
+            "current_health = excluded.current_health, max_health = excluded.max_health";
+    private static final String UPDATE_HEALTH =
+            "UPDATE regions SET health_enabled = ?, current_health = ?, max_health = ? WHERE id = ?";
+    private static final String UPDATE_HIDDEN = "UPDATE regions SET hidden = ? WHERE id = ?";
+    private static final String DELETE_REGION = "DELETE FROM regions WHERE id = ?";
+    private static final String DELETE_MEMBERS = "DELETE FROM region_members WHERE region_id = ?";
+    private static final String DELETE_ROLE = "DELETE FROM region_members WHERE region_id = ? AND role = ?";
+    private static final String INSERT_MEMBER = "INSERT INTO region_members (region_id, uuid, role) VALUES (?, ?, ?)";
+
+    private final Plugin plugin;
+    private final File file;
+    private final long flushSeconds;
+
+    private final TaskScheduler scheduler;
+
+    // Накопленные изменения (под блокировкой хранилища: на Folia изменения
+    // приходят из потоков разных областей мира)
+    private Map<String, PendingChange> pending = new LinkedHashMap<>();
+
+    private ExecutorService executor;
+    private volatile Thread databaseThread;
+    private Connection connection;
+    private TaskScheduler.Task flushTask;
+
+    public SqliteStorageBackend(Plugin plugin, File dataFolder, long flushSeconds) {
+        this.plugin = plugin;
+        this.file = new File(dataFolder, "regions.db");
+        this.flushSeconds = flushSeconds;
+        this.scheduler = new TaskScheduler(plugin);
+    }
+
+    @Override
+    public boolean exists() {
+        return file.exists();
+    }
+
+    @Override
+    public Map<String, ProtectedRegion> loadAll() {
+        Map<String, ProtectedRegion> loaded = new LinkedHashMap<>();
+        forEach(region -> loaded.put(region.getId(), region));
+        return loaded;
+    }
+
+    /**
+     * Потоковое чтение: строки читаются отдельным подключением в своем потоке
+     * и передаются через ограниченную очередь, action вызывается в потоке
+     * вызывающего. Поток базы остается свободным, поэтому из action можно
+     * обращаться к хранилищу
+     */
+    @Override
+    public void forEach(Consumer<ProtectedRegion> action) {
+        // Отправленные до перебора изменения должны попасть в выборку
+        submitPending();
+        if (call(this::connection) == null) return;
+
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(READ_AHEAD);
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        Thread reader = new Thread(() -> readRegions(queue, cancelled), "TushpStones-SQLite-Read");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            Object next;
+            while ((next = queue.take()) != END_OF_ROWS) {
+                action.accept((ProtectedRegion) next);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Перебор прерван исключением из action - останавливаем чтение
+            cancelled.set(true);
+            queue.clear();
+        }
+    }
+
+    @Override
+    public void upsert(ProtectedRegion region) {
+        update(region, RegionChange.CREATE);
+    }
+
+    @Override
+    public void delete(ProtectedRegion region) {
+        update(region, RegionChange.REMOVE);
+    }
+
+    /**
+     * Запомнить изменение; значения копируются сразу, в потоке изменения
+     */
+    @Override
+    public synchronized void update(ProtectedRegion region, RegionChange change) {
+        PendingChange entry = pending.computeIfAbsent(region.getId(), PendingChange::new);
+
+        if (change == RegionChange.CREATE || change == RegionChange.REMOVE) {
+            // Полная запись или удаление перекрывают все прежние изменения
+            entry.mask = 0;
+        }
+        entry.mask |= 1 << change.ordinal();
+
+        switch (change) {
+            case CREATE:
+                entry.region = region;
+                entry.members = new ArrayList<>(region.getMembers());
+                entry.coOwners = new ArrayList<>(region.getCoOwners());
+                captureHealth(entry, region);
+                entry.hidden = region.isHidden();
+                break;
+            case HEALTH:
+                captureHealth(entry, region);
+                break;
+            case MEMBERS:
+                entry.members = new ArrayList<>(region.getMembers());
+                break;
+            case CO_OWNERS:
+                entry.coOwners = new ArrayList<>(region.getCoOwners());
+                break;
+            case HIDDEN:
+                entry.hidden = region.isHidden();
+                break;
+            default:
+                break;
+        }
+
+        if (flushTask == null) {
+            // Отложенная запись отключена - отправляем сразу
+            submitPending();
+        }
+    }
+
+    @Override
+    public synchronized void replaceAll(Collection<ProtectedRegion> regions) {
+        pending.clear();
+        List<PendingChange> changes = new ArrayList<>(regions.size());
+        for (ProtectedRegion region : regions) {
+            PendingChange entry = new PendingChange(region.getId());
+            entry.mask = 1 << RegionChange.CREATE.ordinal();
+            entry.region = region;
+            entry.members = new ArrayList<>(region.getMembers());
+            entry.coOwners = new ArrayList<>(region.getCoOwners());
+            entry.hidden = region.isHidden();
+            captureHealth(entry, region);
+            changes.add(entry);
+        }
+
+        call(() -> {
+            Connection db = connection();
+            try (Statement statement = db.createStatement()) {
+                db.setAutoCommit(false);
+                statement.executeUpdate("DELETE FROM region_members");
+                statement.executeUpdate("DELETE FROM regions");
+                writeChanges(db, changes);
+                db.commit();
+            } catch (SQLException e) {
+                db.rollback();
+                throw e;
+            } finally {
+                db.setAutoCommit(true);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Запуск периодической отправки накопленных изменений (storage.flush-interval-seconds)
+     */
+    @Override
+    public void start() {
+        stopFlushTask();
+
+        if (flushSeconds <= 0) {
+            return;
+        }
+
+        long intervalTicks = flushSeconds * 20L;
+        flushTask = scheduler.runGlobalTimer(this::submitPending, intervalTicks, intervalTicks);
+    }
+
+    @Override
+    public void flush() {
+        submitPending();
+        call(() -> null);
+    }
+
+    @Override
+    public void close() {
+        stopFlushTask();
+        flush();
+
+        ExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current == null) return;
+
+        current.execute(this::closeConnection);
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(30, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Фоновая запись " + file.getName() + " не завершилась вовремя");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void backup() throws IOException {
+        close();
+        Files.move(file.toPath(), new File(file.getPath() + ".bak").toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // ЗАПИСЬ
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Отправить накопленные изменения в поток базы одной транзакцией
+     */
+    private synchronized void submitPending() {
+        if (pending.isEmpty()) return;
+
+        Collection<PendingChange> changes = pending.values();
+        pending = new LinkedHashMap<>();
+
+        execute(() -> {
+            try {
+                Connection db = connection();
+                db.setAutoCommit(false);
+                try {
+                    writeChanges(db, changes);
+                    db.commit();
+                } catch (SQLException e) {
+                    db.rollback();
+                    throw e;
+                } finally {
+                    db.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Не удалось сохранить изменения в " + file.getName() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private static void writeChanges(Connection db, Collection<PendingChange> changes) throws SQLException {
+        try (PreparedStatement upsert = db.prepareStatement(UPSERT_REGION);
+             PreparedStatement health = db.prepareStatement(UPDATE_HEALTH);
+             PreparedStatement hidden = db.prepareStatement(UPDATE_HIDDEN);
+             PreparedStatement deleteRegion = db.prepareStatement(DELETE_REGION);
+             PreparedStatement deleteMembers = db.prepareStatement(DELETE_MEMBERS);
+             PreparedStatement deleteRole = db.prepareStatement(DELETE_ROLE);
+             PreparedStatement insertMember = db.prepareStatement(INSERT_MEMBER)) {
+
+            for (PendingChange change : changes) {
+                if (change.has(RegionChange.REMOVE)) {
+                    deleteRegion.setString(1, change.id);
+                    deleteRegion.addBatch();
+                    deleteMembers.setString(1, change.id);
+                    deleteMembers.addBatch();
+                    continue;
+                }
+
+                if (change.has(RegionChange.CREATE)) {
+                    bindRegion(upsert, change);
+                    upsert.addBatch();
+                    deleteMembers.setString(1, change.id);
+                    deleteMembers.addBatch();
+                    addMembers(insertMember, change.id, change.members, ROLE_MEMBER);
+                    addMembers(insertMember, change.id, change.coOwners, ROLE_CO_OWNER);
+                    continue;
+                }
+
+                if (change.has(RegionChange.HEALTH)) {
+                    health.setBoolean(1, change.healthEnabled);
+                    health.setInt(2, change.currentHealth);
+                    health.setInt(3, change.maxHealth);
+                    health.setString(4, change.id);
+                    health.addBatch();
+                }
+                if (change.has(RegionChange.HIDDEN)) {
+                    hidden.setBoolean(1, change.hidden);
+                    hidden.setString(2, change.id);
+                    hidden.addBatch();
+                }
+                if (change.has(RegionChange.MEMBERS)) {
+                    deleteRole.setString(1, change.id);
+                    deleteRole.setInt(2, ROLE_MEMBER);
+                    deleteRole.addBatch();
+                    addMembers(insertMember, change.id, change.members, ROLE_MEMBER);
+                }
+                if (change.has(RegionChange.CO_OWNERS)) {
+                    deleteRole.setString(1, change.id);
+                    deleteRole.setInt(2, ROLE_CO_OWNER);
+                    deleteRole.addBatch();
+                    addMembers(insertMember, change.id, change.coOwners, ROLE_CO_OWNER);
+                }
+            }
+
+            // Порядок важен: сначала удаления, затем вставки
+            deleteRegion.executeBatch();
+            deleteMembers.executeBatch();
+            deleteRole.executeBatch();
+            upsert.executeBatch();
+            health.executeBatch();
+            hidden.executeBatch();
+            insertMember.executeBatch();
+        }
+    }
+
+    private static void bindRegion(PreparedStatement statement, PendingChange change) throws SQLException {
+        ProtectedRegion region = change.region;
+        Location location = region.getLocation();
+
+        statement.setString(1, change.id);
+        statement.setString(2, region.getOwner().toString());
+        statement.setString(3, location.getWorld().getName());
+        statement.setDouble(4, location.getX());
+        statement.setDouble(5, location.getY());
+        statement.setDouble(6, location.getZ());
+        statement.setInt(7, region.getRadius());
+        statement.setString(8, region.getBlockType());
+        statement.setInt(9, region.getPriority());
+        statement.setBoolean(10, change.hidden);
+        statement.setBoolean(11, change.healthEnabled);
+        statement.setInt(12, change.currentHealth);
+        statement.setInt(13, change.maxHealth);
+    }
+
+    private static void addMembers(PreparedStatement statement, String id, List<UUID> uuids, int role)
+            throws SQLException {
+        for (UUID uuid : uuids) {
+            statement.setString(1, id);
+            statement.setString(2, uuid.toString());
+            statement.setInt(3, role);
+            statement.addBatch();
+        }
+    }
+
+    private static void captureHealth(PendingChange entry, ProtectedRegion region) {
+        entry.healthEnabled = region.isHealthEnabled();
+        entry.currentHealth = region.getCurrentHealth();
+        entry.maxHealth = region.getMaxHealth();
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // ЧТЕНИЕ
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Регионы и участники читаются двумя упорядоченными запросами
+     * и склеиваются слиянием по ID
+     */
+    private void readRegions(BlockingQueue<Object> queue, AtomicBoolean cancelled) {
+        try (Connection db = DriverManager.getConnection(url());
+             Statement regionQuery = db.createStatement();
+             Statement memberQuery = db.createStatement();
+             ResultSet rows = regionQuery.executeQuery("SELECT * FROM regions ORDER BY id");
+             ResultSet members = memberQuery.executeQuery(
+                     "SELECT region_id, uuid, role FROM region_members ORDER BY region_id")) {
+
+            boolean hasMember = members.next();
+            while (rows.next()) {
+                String id = rows.getString("id");
+
+                // Пропускаем участников удаленных регионов
+                while (hasMember && members.getString(1).compareTo(id) < 0) {
+                    hasMember = members.next();
+                }
+
+                Set<UUID> memberSet = new HashSet<>();
+                Set<UUID> coOwnerSet = new HashSet<>();
+                while (hasMember && members.getString(1).equals(id)) {
+                    UUID uuid = UUID.fromString(members.getString(2));
+                    (members.getInt(3) == ROLE_CO_OWNER ? coOwnerSet : memberSet).add(uuid);
+                    hasMember = members.next();
+                }
+
+                ProtectedRegion region = readRegion(rows, memberSet, coOwnerSet);
+                if (region != null && !offer(queue, cancelled, region)) {
+                    return;
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Ошибка чтения " + file.getName() + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                offer(queue, cancelled, END_OF_ROWS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Положить элемент в очередь, дожидаясь места, пока перебор не прерван
+     * @return false, если перебор прерван
+     */
+    private static boolean offer(BlockingQueue<Object> queue, AtomicBoolean cancelled, Object item)
+            throws InterruptedException {
+        while (!cancelled.get()) {
+            if (queue.offer(item, 1, TimeUnit.SECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ProtectedRegion readRegion(ResultSet rows, Set<UUID> members, Set<UUID> coOwners) throws SQLException {
+        String id = rows.getString("id");
+        String worldName = rows.getString("world");
+
+        World world = Bukkit.getWorld(worldName);
+        if (world == null) {
+            plugin.getLogger().warning("Мир " + worldName + " для региона " + id + " не найден");
+            return null;
+        }
+
+        ProtectedRegion region = new ProtectedRegion(
+                id,
+                UUID.fromString(rows.getString("owner")),
+                new Location(world, rows.getDouble("x"), rows.getDouble("y"), rows.getDouble("z")),
+                rows.getInt("radius"),
+                rows.getString("block_type"),
+                rows.getInt("priority"),
+                members,
+                coOwners
+        );
+        region.setHidden(rows.getBoolean("hidden"));
+        region.setHealthEnabled(rows.getBoolean("health_enabled"));
+        region.setCurrentHealth(rows.getInt("current_health"));
+        region.setMaxHealth(rows.getInt("max_health"));
+        return region;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // ПОДКЛЮЧЕНИЕ (только поток базы)
+    // ═══════════════════════════════════════════════════════════
+
+    private Connection connection() throws SQLException {
+        if (connection != null) {
+            return connection;
+        }
+
+        connection = DriverManager.getConnection(url());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            statement.execute("CREATE TABLE IF NOT EXISTS regions (" +
+                    "id TEXT PRIMARY KEY, owner TEXT NOT NULL, world TEXT NOT NULL, " +
+                    "x REAL NOT NULL, y REAL NOT NULL, z REAL NOT NULL, radius INTEGER NOT NULL, " +
+                    "block_type TEXT NOT NULL, priority INTEGER NOT NULL, hidden INTEGER NOT NULL, " +
+                    "health_enabled INTEGER NOT NULL, current_health INTEGER NOT NULL, max_health INTEGER NOT NULL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS regions_owner ON regions (owner)");
+            statement.execute("CREATE INDEX IF NOT EXISTS regions_world ON regions (world)");
+            statement.execute("CREATE TABLE IF NOT EXISTS region_members (" +
+                    "region_id TEXT NOT NULL, uuid TEXT NOT NULL, role INTEGER NOT NULL, " +
+                    "PRIMARY KEY (region_id, uuid, role))");
+        }
+        return connection;
+    }
+
+    private String url() {
+        return "jdbc:sqlite:" + file.getAbsolutePath();
+    }
+
+    private void closeConnection() {
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Ошибка закрытия " + file.getName() + ": " + e.getMessage());
+        }
+        connection = null;
+    }
+
+    private synchronized void execute(Runnable task) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "TushpStones-SQLite");
+                thread.setDaemon(true);
+                databaseThread = thread;
+                return thread;
+            });
+        }
+        executor.execute(task);
+    }
+
+    /**
+     * Выполнить запрос в потоке базы и дождаться результата
+     * Вызов из самого потока базы ждал бы сам себя, поэтому запрещен
+     * @return null при ошибке
+     */
+    private <T> T call(Callable<T> query) {
+        if (Thread.currentThread() == databaseThread) {
+            throw new IllegalStateException("Синхронный запрос к " + file.getName() + " из потока базы");
+        }
+
+        FutureTask<T> task = new FutureTask<>(query);
+        execute(task);
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            plugin.getLogger().severe("Ошибка запроса к " + file.getName() + ": " + e.getCause().getMessage());
+        }
+        return null;
+    }
+
+    private void stopFlushTask() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+    }
+
+    /**
+     * Накопленные изменения одного региона
+     */
+    private static class PendingChange {
+        final String id;
+        int mask;
+
+        ProtectedRegion region;
+        List<UUID> members;
+        List<UUID> coOwners;
+        boolean hidden;
+        boolean healthEnabled;
+        int currentHealth;
+        int maxHealth;
+
+        PendingChange(String id) {
+            this.id = id;
+        }
+
+        boolean has(RegionChange change) {
+            return (mask & (1 << change.ordinal())) != 0;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.tushpStones.storage;
+
+import com.example.tushpStones.models.ProtectedRegion;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище регионов
+ * Менеджер регионов держит все регионы в памяти и сообщает хранилищу
+ * только об отдельных изменениях; как и когда они попадут на диск,
+ * решает реализация.
+ */
+public interface StorageBackend {
+
+    /**
+     * Есть ли уже сохраненные данные этого хранилища
+     */
+    boolean exists();
+
+    /**
+     * Загрузить все регионы (ID -> регион)
+     */
+    Map<String, ProtectedRegion> loadAll();
+
+    /**
+     * Перебрать сохраненные регионы без загрузки всех сразу
+     */
+    void forEach(Consumer<ProtectedRegion> action);
+
+    /**
+     * Создать или полностью перезаписать регион
+     */
+    void upsert(ProtectedRegion region);
+
+    /**
+     * Удалить регион
+     */
+    void delete(ProtectedRegion region);
+
+    /**
+     * Сохранить отдельное изменение региона
+     * Реализации могут записывать только измененные поля
+     */
+    default void update(ProtectedRegion region, RegionChange change) {
+        if (change == RegionChange.REMOVE) {
+            delete(region);
+        } else {
+            upsert(region);
+        }
+    }
+
+    /**
+     * Заменить все содержимое хранилища (миграция из другого хранилища)
+     */
+    void replaceAll(Collection<ProtectedRegion> regions);
+
+    /**
+     * Запуск фоновых задач хранилища
+     */
+    default void start() {
+    }
+
+    /**
+     * Синхронно записать все отложенные изменения
+     */
+    void flush();
+
+    /**
+     * Записать все изменения и освободить ресурсы
+     */
+    void close();
+
+    /**
+     * Переименовать файлы хранилища в резервную копию (после переноса в другое хранилище)
+     */
+    default void backup() throws IOException {
+    }
+}
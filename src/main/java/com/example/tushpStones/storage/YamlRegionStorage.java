@@ -0,0 +1,129 @@
+package com.example.tushpStones.storage;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Запись regions.yml в фоновом потоке
+ * Снимок регионов собирается в основном потоке, а сериализация в YAML
+ * и запись на диск выполняются отдельным потоком через временный файл
+ */
+public class YamlRegionStorage {
+
+    private final Plugin plugin;
+    private final File file;
+    private ExecutorService writer;
+
+    // Номер последнего собранного снимка и последнего записанного
+    private final AtomicLong version = new AtomicLong();
+    private final Object writeLock = new Object();
+    private long writtenVersion;
+
+    public YamlRegionStorage(Plugin plugin, File file) {
+        this.plugin = plugin;
+        this.file = file;
+    }
+
+    /**
+     * Записать снимок в фоне
+     * @param snapshot ID региона -> сериализованный регион
+     */
+    public void writeAsync(Map<String, Map<String, Object>> snapshot) {
+        long snapshotVersion = version.incrementAndGet();
+        execute(() -> write(snapshot, snapshotVersion));
+    }
+
+    /**
+     * Записать снимок в текущем потоке
+     */
+    public void write(Map<String, Map<String, Object>> snapshot) {
+        write(snapshot, version.incrementAndGet());
+    }
+
+    /**
+     * Запись снимка; более старый снимок не затирает уже записанный новый
+     */
+    private void write(Map<String, Map<String, Object>> snapshot, long snapshotVersion) {
+        synchronized (writeLock) {
+            if (snapshotVersion < writtenVersion) {
+                return;
+            }
+            writtenVersion = snapshotVersion;
+            writeFile(snapshot);
+        }
+    }
+
+    private void writeFile(Map<String, Map<String, Object>> snapshot) {
+        YamlConfiguration yaml = new YamlConfiguration();
+        for (Map.Entry<String, Map<String, Object>> entry : snapshot.entrySet()) {
+            yaml.createSection(entry.getKey(), entry.getValue());
+        }
+
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(file.getName() + ".tmp");
+
+        try {
+            Files.writeString(temp, yaml.saveToString(), StandardCharsets.UTF_8);
+
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Не удалось сохранить " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Выполнить задачу в потоке записи (после всех ранее поставленных)
+     */
+    public synchronized void execute(Runnable task) {
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "TushpStones-Storage");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        writer.execute(task);
+    }
+
+    /**
+     * Дождаться завершения всех фоновых записей
+     */
+    public void shutdown() {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = writer;
+            writer = null;
+        }
+        if (executor == null) return;
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Фоновая запись " + file.getName() + " не завершилась вовремя");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.tushpStones.storage;
+
+import com.example.tushpStones.models.ProtectedRegion;
+import com.example.tushpStones.utils.TaskScheduler;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Хранилище в regions.yml
+ *
+ * Обычный режим: изменения помечают хранилище, а снимок всех регионов
+ * записывается в фоне не чаще раза в storage.flush-interval-seconds секунд.
+ * Режим журнала: каждое изменение дописывается в regions.journal,
+ * regions.yml перезаписывается только при сжатии журнала.
+ */
+public class YamlStorageBackend implements StorageBackend {
+
+    private final Plugin plugin;
+    private final File file;
+    private final YamlRegionStorage writer;
+    private final RegionJournal journal;
+    private final boolean journalMode;
+    private final long autoSaveSeconds;
+    // Живые регионы менеджера для снимков
+    private final Supplier<Collection<ProtectedRegion>> regions;
+
+    private final TaskScheduler scheduler;
+
+    private volatile boolean dirty;
+    private TaskScheduler.Task autoSaveTask;
+
+    public YamlStorageBackend(Plugin plugin, File dataFolder, Supplier<Collection<ProtectedRegion>> regions,
+                              boolean journalMode, long autoSaveSeconds, long compactThreshold) {
+        this.plugin = plugin;
+        this.file = new File(dataFolder, "regions.yml");
+        this.writer = new YamlRegionStorage(plugin, file);
+        this.journal = new RegionJournal(plugin, new File(dataFolder, "regions.journal"), writer, compactThreshold);
+        this.journalMode = journalMode;
+        this.autoSaveSeconds = autoSaveSeconds;
+        this.regions = regions;
+        this.scheduler = new TaskScheduler(plugin);
+    }
+
+    @Override
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Загрузка при запуске: кроме чтения создает пустой regions.yml
+     * и сжимает примененный журнал в снимок
+     */
+    @Override
+    public Map<String, ProtectedRegion> loadAll() {
+        if (!file.exists()) {
+            try {
+                file.createNewFile();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Не удалось создать regions.yml: " + e.getMessage());
+            }
+        }
+
+        Map<String, ProtectedRegion> loaded = new LinkedHashMap<>();
+        readSnapshot(region -> loaded.put(region.getId(), region));
+
+        // Применяем журнал изменений поверх снимка (даже если режим журнала выключен,
+        // чтобы не потерять изменения, записанные до переключения)
+        int applied = journal.replay(loaded);
+        if (applied > 0) {
+            plugin.getLogger().info("Применено записей журнала: " + applied);
+            journal.compact(snapshot(loaded.values()));
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Перебор сохраненных регионов без изменения файлов
+     * Без журнала регионы передаются по одному по мере разбора снимка
+     * (сам YAML разбирается целиком), иначе журнал применяется к снимку в памяти
+     */
+    @Override
+    public void forEach(Consumer<ProtectedRegion> action) {
+        if (journal.isEmpty()) {
+            readSnapshot(action);
+            return;
+        }
+
+        Map<String, ProtectedRegion> loaded = new LinkedHashMap<>();
+        readSnapshot(region -> loaded.put(region.getId(), region));
+        journal.replay(loaded);
+        loaded.values().forEach(action);
+    }
+
+    private void readSnapshot(Consumer<ProtectedRegion> action) {
+        if (!file.exists()) return;
+
+        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
+        for (String key : config.getKeys(false)) {
+            ProtectedRegion region;
+            try {
+                region = ProtectedRegion.deserialize(config.getConfigurationSection(key));
+            } catch (Exception e) {
+                plugin.getLogger().warning("Ошибка загрузки региона " + key + ": " + e.getMessage());
+                continue;
+            }
+            if (region != null) {
+                action.accept(region);
+            }
+        }
+    }
+
+    @Override
+    public void upsert(ProtectedRegion region) {
+        update(region, RegionChange.CREATE);
+    }
+
+    @Override
+    public void delete(ProtectedRegion region) {
+        update(region, RegionChange.REMOVE);
+    }
+
+    /**
+     * Изменения могут приходить из потоков разных областей мира (Folia),
+     * записи журнала добавляются по одной
+     */
+    @Override
+    public synchronized void update(ProtectedRegion region, RegionChange change) {
+        if (!journalMode) {
+            markDirty();
+            return;
+        }
+
+        journal.append(region, change);
+        if (journal.needsCompaction()) {
+            journal.compactAsync(snapshot(regions.get()));
+        }
+    }
+
+    @Override
+    public void replaceAll(Collection<ProtectedRegion> replacement) {
+        journal.compact(snapshot(replacement));
+    }
+
+    /**
+     * Запуск фонового автосохранения (storage.flush-interval-seconds)
+     */
+    @Override
+    public void start() {
+        stopAutoSave();
+
+        if (autoSaveSeconds <= 0 || journalMode) {
+            return;
+        }
+
+        long intervalTicks = autoSaveSeconds * 20L;
+        autoSaveTask = scheduler.runGlobalTimer(() -> {
+            if (!dirty) return;
+
+            dirty = false;
+            writer.writeAsync(snapshot(regions.get()));
+        }, intervalTicks, intervalTicks);
+    }
+
+    @Override
+    public void flush() {
+        dirty = false;
+        writer.write(snapshot(regions.get()));
+    }
+
+    @Override
+    public void close() {
+        stopAutoSave();
+        writer.shutdown();
+
+        if (journalMode) {
+            // Сжимаем журнал в снимок, чтобы следующий запуск не применял его заново
+            journal.close();
+            journal.compact(snapshot(regions.get()));
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * Пометить снимок как измененный
+     * Запись на диск выполнит таймер автосохранения
+     */
+    private void markDirty() {
+        if (autoSaveTask == null) {
+            // Автосохранение отключено - сохраняем сразу
+            flush();
+            return;
+        }
+        dirty = true;
+    }
+
+    private void stopAutoSave() {
+        if (autoSaveTask != null) {
+            autoSaveTask.cancel();
+            autoSaveTask = null;
+        }
+    }
+
+    /**
+     * Согласованный снимок регионов для записи (собирается в основном потоке)
+     */
+    public static Map<String, Map<String, Object>> snapshot(Collection<ProtectedRegion> regions) {
+        Map<String, Map<String, Object>> snapshot = new LinkedHashMap<>(regions.size() * 2);
+        for (ProtectedRegion region : regions) {
+            snapshot.put(region.getId(), region.serialize());
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.tushpStones.utils;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import net.kyori.adventure.text.serializer.legacy.LegacyFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Шаблон сообщения из config.yml
+ * Строка с кодами цветов (&a) разбирается один раз: неизменяемые части становятся
+ * готовыми компонентами, а {owner}, {current}, {max}, {item} - слотами со своим стилем.
+ * При отправке подставляются только значения слотов, без разбора строки.
+ */
+public final class MessageTemplate {
+
+    /**
+     * Слоты шаблона
+     */
+    public enum Placeholder {
+        OWNER("{owner}"),
+        CURRENT("{current}"),
+        MAX("{max}"),
+        ITEM("{item}");
+
+        private final String token;
+
+        Placeholder(String token) {
+            this.token = token;
+        }
+    }
+
+    private static final Placeholder[] PLACEHOLDERS = Placeholder.values();
+
+    // Части шаблона по порядку: готовый компонент или слот (тогда parts[i] == null)
+    private final Component[] parts;
+    private final Placeholder[] slots;
+    private final Style[] slotStyles;
+    // Шаблон без слотов - один готовый компонент
+    private final Component constant;
+
+    private MessageTemplate(List<Component> parts, List<Placeholder> slots, List<Style> slotStyles) {
+        this.parts = parts.toArray(new Component[0]);
+        this.slots = slots.toArray(new Placeholder[0]);
+        this.slotStyles = slotStyles.toArray(new Style[0]);
+
+        boolean hasSlots = false;
+        for (Placeholder slot : this.slots) {
+            if (slot != null) {
+                hasSlots = true;
+                break;
+            }
+        }
+
+        if (hasSlots) {
+            constant = null;
+        } else {
+            TextComponent.Builder builder = Component.text();
+            for (Component part : this.parts) {
+                builder.append(part);
+            }
+            constant = builder.build();
+        }
+    }
+
+    /**
+     * Разобрать строку шаблона (коды цветов & или §)
+     */
+    public static MessageTemplate compile(String raw) {
+        List<Component> parts = new ArrayList<>();
+        List<Placeholder> slots = new ArrayList<>();
+        List<Style> slotStyles = new ArrayList<>();
+
+        Style style = Style.empty();
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+
+            // Код цвета или форматирования
+            if ((c == '&' || c == '§') && i + 1 < raw.length()) {
+                LegacyFormat format = LegacyComponentSerializer.parseChar(raw.charAt(i + 1));
+                if (format != null) {
+                    flush(text, style, parts, slots, slotStyles);
+                    style = apply(style, format);
+                    i++;
+                    continue;
+                }
+            }
+
+            // Слот
+            if (c == '{') {
+                Placeholder placeholder = match(raw, i);
+                if (placeholder != null) {
+                    flush(text, style, parts, slots, slotStyles);
+                    parts.add(null);
+                    slots.add(placeholder);
+                    slotStyles.add(style);
+                    i += placeholder.token.length() - 1;
+                    continue;
+                }
+            }
+
+            text.append(c);
+        }
+        flush(text, style, parts, slots, slotStyles);
+
+        return new MessageTemplate(parts, slots, slotStyles);
+    }
+
+    /**
+     * Сообщение без подстановок
+     */
+    public Component render() {
+        return render(null);
+    }
+
+    /**
+     * Сообщение с подставленными значениями слотов
+     */
+    public Component render(Args args) {
+        if (constant != null) {
+            return constant;
+        }
+
+        TextComponent.Builder builder = Component.text();
+        for (int i = 0; i < parts.length; i++) {
+            if (slots[i] == null) {
+                builder.append(parts[i]);
+                continue;
+            }
+
+            Style slotStyle = slotStyles[i];
+            switch (slots[i]) {
+                case OWNER:
+                    builder.append(Component.text(args != null ? args.owner : "", slotStyle));
+                    break;
+                case CURRENT:
+                    builder.append(Component.text(args != null ? args.current : 0, slotStyle));
+                    break;
+                case MAX:
+                    builder.append(Component.text(args != null ? args.max : 0, slotStyle));
+                    break;
+                case ITEM:
+                    builder.append(Component.text(args != null ? args.item : "", slotStyle));
+                    break;
+            }
+        }
+        return builder.build();
+    }
+
+    private static void flush(StringBuilder text, Style style, List<Component> parts,
+                              List<Placeholder> slots, List<Style> slotStyles) {
+        if (text.length() == 0) return;
+
+        parts.add(Component.text(text.toString(), style));
+        slots.add(null);
+        slotStyles.add(null);
+        text.setLength(0);
+    }
+
+    private static Style apply(Style style, LegacyFormat format) {
+        if (format.reset()) {
+            return Style.empty();
+        }
+        // Цвет сбрасывает форматирование, как в legacy-тексте
+        if (format.color() != null) {
+            return Style.style(format.color());
+        }
+        if (format.decoration() != null) {
+            return style.decoration(format.decoration(), true);
+        }
+        return style;
+    }
+
+    private static Placeholder match(String raw, int index) {
+        for (Placeholder placeholder : PLACEHOLDERS) {
+            if (raw.startsWith(placeholder.token, index)) {
+                return placeholder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Значения слотов (можно переиспользовать между отправками)
+     */
+    public static final class Args {
+        private String owner = "";
+        private int current;
+        private int max;
+        private String item = "";
+
+        public Args owner(String owner) {
+            this.owner = owner;
+            return this;
+        }
+
+        public Args health(int current, int max) {
+            this.current = current;
+            this.max = max;
+            return this;
+        }
+
+        public Args item(String item) {
+            this.item = item;
+            return this;
+        }
+    }
+}
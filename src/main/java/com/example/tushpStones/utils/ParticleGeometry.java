@@ -0,0 +1,144 @@
+package com.example.tushpStones.utils;
+
+/**
+ * Кэш геометрии частиц
+ * Фигура вычисляется один раз для пары (радиус, шаг) и хранится как
+ * массив смещений от центра: x0, y0, z0, x1, y1, z1, ...
+ *
+ * Кэш читается из потоков разных областей мира (Folia), поэтому он неизменяемый
+ * и подменяется целиком; одну фигуру могут одновременно построить два потока,
+ * это безопасно - массивы одинаковые.
+ */
+public final class ParticleGeometry {
+
+    private static final int CUBE_EDGES = 0;
+    private static final int CUBE_CORNERS = 1;
+    private static final int RINGS = 2;
+
+    // Рёбра куба (пары индексов вершин)
+    private static final int[] EDGES = {
+            // Нижнее основание
+            0, 1, 1, 2, 2, 3, 3, 0,
+            // Верхнее основание
+            4, 5, 5, 6, 6, 7, 7, 4,
+            // Вертикальные рёбра
+            0, 4, 1, 5, 2, 6, 3, 7
+    };
+
+    // Знаки координат 8 вершин куба
+    private static final int[] CORNER_SIGNS = {
+            -1, -1, -1,
+            1, -1, -1,
+            1, -1, 1,
+            -1, -1, 1,
+            -1, 1, -1,
+            1, 1, -1,
+            1, 1, 1,
+            -1, 1, 1
+    };
+
+    private static volatile PersistentLongMap<double[]> cache = PersistentLongMap.empty();
+
+    private ParticleGeometry() {
+    }
+
+    /**
+     * Точки вдоль 12 рёбер куба с заданным шагом
+     */
+    public static double[] cubeEdges(int radius, double spacing) {
+        long key = key(CUBE_EDGES, radius, spacing);
+        double[] offsets = cache.get(key);
+        if (offsets == null) {
+            offsets = buildCubeEdges(radius, spacing);
+            store(key, offsets);
+        }
+        return offsets;
+    }
+
+    /**
+     * 8 вершин куба
+     */
+    public static double[] cubeCorners(int radius) {
+        long key = key(CUBE_CORNERS, radius, 0);
+        double[] offsets = cache.get(key);
+        if (offsets == null) {
+            offsets = new double[CORNER_SIGNS.length];
+            for (int i = 0; i < CORNER_SIGNS.length; i++) {
+                offsets[i] = CORNER_SIGNS[i] * (double) radius;
+            }
+            store(key, offsets);
+        }
+        return offsets;
+    }
+
+    /**
+     * Три горизонтальных круга (на уровне центра, выше и ниже на радиус)
+     * по radius * 8 точек в каждом; круги идут друг за другом,
+     * поэтому каждая n-я точка равномерно покрывает все три
+     */
+    public static double[] rings(int radius) {
+        long key = key(RINGS, radius, 0);
+        double[] offsets = cache.get(key);
+        if (offsets == null) {
+            offsets = buildRings(radius);
+            store(key, offsets);
+        }
+        return offsets;
+    }
+
+    private static synchronized void store(long key, double[] offsets) {
+        cache = cache.plus(key, offsets);
+    }
+
+    private static double[] buildCubeEdges(int radius, double spacing) {
+        // Все рёбра одной длины, поэтому точек на каждом поровну
+        int steps = Math.max(1, (int) (2.0 * radius / spacing));
+        double[] offsets = new double[EDGES.length / 2 * (steps + 1) * 3];
+
+        int index = 0;
+        for (int edge = 0; edge < EDGES.length; edge += 2) {
+            int from = EDGES[edge] * 3;
+            int to = EDGES[edge + 1] * 3;
+
+            double startX = CORNER_SIGNS[from] * (double) radius;
+            double startY = CORNER_SIGNS[from + 1] * (double) radius;
+            double startZ = CORNER_SIGNS[from + 2] * (double) radius;
+            double deltaX = (CORNER_SIGNS[to] * (double) radius - startX) / steps;
+            double deltaY = (CORNER_SIGNS[to + 1] * (double) radius - startY) / steps;
+            double deltaZ = (CORNER_SIGNS[to + 2] * (double) radius - startZ) / steps;
+
+            for (int i = 0; i <= steps; i++) {
+                offsets[index++] = startX + deltaX * i;
+                offsets[index++] = startY + deltaY * i;
+                offsets[index++] = startZ + deltaZ * i;
+            }
+        }
+        return offsets;
+    }
+
+    private static double[] buildRings(int radius) {
+        int points = radius * 8; // Больше точек для больших кругов
+        double[] offsets = new double[points * 9];
+
+        for (int i = 0; i < points; i++) {
+            double angle = 2 * Math.PI * i / points;
+            double x = radius * Math.cos(angle);
+            double z = radius * Math.sin(angle);
+
+            for (int level = 0; level <= 2; level++) {
+                int index = (level * points + i) * 3;
+                offsets[index] = x;
+                offsets[index + 1] = level == 0 ? 0 : (level == 1 ? radius : -radius);
+                offsets[index + 2] = z;
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Ключ кэша: фигура, радиус и шаг в 1/64 блока
+     */
+    private static long key(int shape, int radius, double spacing) {
+        return ((long) shape << 56) | ((long) radius << 24) | ((long) (spacing * 64) & 0xFFFFFFL);
+    }
+}
@@ -1,12 +1,11 @@
 package com.example.tushpStones.utils;
 
+import com.example.tushpStones.managers.ConfigManager;
 import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.plugin.Plugin;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,10 +15,27 @@ import java.util.List;
  */
 public class ParticleVisualizer {
 
-    private final Plugin plugin;
+    // Цвета кадров анимации создания (кадр каждые 2 тика, 3 секунды)
+    private static final Particle.DustOptions[] CREATION_COLORS = new Particle.DustOptions[30];
 
-    public ParticleVisualizer(Plugin plugin) {
-        this.plugin = plugin;
+    static {
+        for (int frame = 0; frame < CREATION_COLORS.length; frame++) {
+            double progress = frame * 2 / 60.0;
+            int green = (int) (150 * (1 - progress) + 255 * progress);
+            int blue = (int) (255 * (1 - progress));
+            CREATION_COLORS[frame] = new Particle.DustOptions(Color.fromRGB(0, green, blue), 1.0f);
+        }
+    }
+
+    // Виды показов: показы разных видов одного региона не заменяют друг друга
+    private static final int KIND_BORDERS = 0;
+    private static final int KIND_CREATION = 1;
+    private static final int KIND_DESTRUCTION = 2;
+
+    private final VisualizationScheduler scheduler;
+
+    public ParticleVisualizer(ConfigManager configManager, TaskScheduler taskScheduler) {
+        this.scheduler = new VisualizationScheduler(configManager, taskScheduler);
     }
 
     /**
@@ -42,33 +58,8 @@ public class ParticleVisualizer {
      * @param duration Длительность в секундах
      */
     public void showRegionBorders(Location center, int radius, Player player, int duration) {
-        World world = center.getWorld();
-        if (world == null) return;
-
-        // Цвет частиц (зеленый для нового региона)
-        Particle.DustOptions dustOptions = new Particle.DustOptions(
-                Color.fromRGB(0, 255, 0), // Зеленый
-                0.75f // Размер частицы
-        );
-
-        // Создаем анимированную задачу
-        new BukkitRunnable() {
-            int ticks = 0;
-            final int maxTicks = duration * 20; // Конвертируем секунды в тики (20 тиков = 1 сек)
-
-            @Override
-            public void run() {
-                if (ticks >= maxTicks || !player.isOnline()) {
-                    this.cancel();
-                    return;
-                }
-
-                // Рисуем куб из частиц
-                drawCubeEdges(center, radius, dustOptions, player);
-
-                ticks += 10; // Обновляем каждые 10 тиков (0.5 сек)
-            }
-        }.runTaskTimer(plugin, 0L, 10L); // Запуск каждые 10 тиков
+        // Зеленый для нового региона
+        showRegionBordersWithColor(center, radius, player, duration, Color.fromRGB(0, 255, 0));
     }
 
     /**
@@ -77,108 +68,153 @@ public class ParticleVisualizer {
     public void showRegionBordersWithColor(Location center, int radius, Player player,
                                            int duration, Color color) {
         World world = center.getWorld();
-        if (world == null) return;
+        if (world == null || player == null) return;
 
         Particle.DustOptions dustOptions = new Particle.DustOptions(color, 0.75f);
 
-        new BukkitRunnable() {
-            int ticks = 0;
-            final int maxTicks = duration * 20;
+        // Кадр каждые 10 тиков (0.5 сек)
+        scheduler.schedule(new VisualizationScheduler.Job(player, regionKey(center, KIND_BORDERS), 10, duration * 20) {
+            // Точка, с которой продолжается отложенный кадр
+            int cursor;
 
             @Override
-            public void run() {
-                if (ticks >= maxTicks || !player.isOnline()) {
-                    this.cancel();
-                    return;
+            protected void render(int age, VisualizationScheduler.Frame frame) {
+                if (age % 10 == 0) {
+                    // Новый кадр: остаток предыдущего уже не нужен
+                    cursor = 0;
                 }
 
-                drawCubeEdges(center, radius, dustOptions, player);
-                ticks += 10;
+                cursor = drawCubeEdges(center, radius, dustOptions, player, null, frame, cursor, false);
+                pending = cursor >= 0;
             }
-        }.runTaskTimer(plugin, 0L, 10L);
+        });
     }
 
     /**
      * Рисует рёбра куба частицами
+     * @param receivers Если не null, кадр рассылается этим игрокам вместо player
+     * @param from С какой точки продолжить кадр
+     * @param thin Прореживать точки под бюджет вместо того, чтобы откладывать остаток
+     * @return Точка, на которой кончился бюджет, или -1, если кадр нарисован полностью
      */
-    private void drawCubeEdges(Location center, int radius, Particle.DustOptions dustOptions, Player player) {
+    private int drawCubeEdges(Location center, int radius, Particle.DustOptions dustOptions, Player player,
+                              List<Player> receivers, VisualizationScheduler.Frame frame, int from, boolean thin) {
         double x = center.getX();
         double y = center.getY();
         double z = center.getZ();
 
-        // 8 вершин куба
-        Location[] corners = {
-                new Location(center.getWorld(), x - radius, y - radius, z - radius),
-                new Location(center.getWorld(), x + radius, y - radius, z - radius),
-                new Location(center.getWorld(), x + radius, y - radius, z + radius),
-                new Location(center.getWorld(), x - radius, y - radius, z + radius),
-                new Location(center.getWorld(), x - radius, y + radius, z - radius),
-                new Location(center.getWorld(), x + radius, y + radius, z - radius),
-                new Location(center.getWorld(), x + radius, y + radius, z + radius),
-                new Location(center.getWorld(), x - radius, y + radius, z + radius)
-        };
-
-        // Рёбра куба (соединения между вершинами)
-        int[][] edges = {
-                // Нижнее основание
-                {0, 1}, {1, 2}, {2, 3}, {3, 0},
-                // Верхнее основание
-                {4, 5}, {5, 6}, {6, 7}, {7, 4},
-                // Вертикальные рёбра
-                {0, 4}, {1, 5}, {2, 6}, {3, 7}
-        };
-
-        // Рисуем каждое ребро
-        for (int[] edge : edges) {
-            drawLine(corners[edge[0]], corners[edge[1]], dustOptions, player, 0.5);
+        // Рёбра куба с шагом 0.5 блока
+        double[] edges = ParticleGeometry.cubeEdges(radius, 0.5);
+        int edgePoints = edges.length / 3;
+        if (from < edgePoints) {
+            int stopped = spawnAll(player, receivers, center.getWorld(), edges, from, thin,
+                    x, y, z, 1, 0, dustOptions, frame);
+            if (stopped >= 0) return stopped;
         }
 
-        // Добавляем угловые акценты (более яркие частицы в углах)
-        for (Location corner : corners) {
-            player.spawnParticle(
-                    Particle.DUST, // Исправлено: FIREWORK -> DUST
-                    corner,
-                    3, // Больше частиц в углах
-                    0.1, 0.1, 0.1, // Небольшой разброс
-                    dustOptions
-            );
-        }
+        // Добавляем угловые акценты (более яркие частицы в углах, с небольшим разбросом)
+        double[] corners = ParticleGeometry.cubeCorners(radius);
+        int stopped = spawnAll(player, receivers, center.getWorld(), corners, Math.max(0, from - edgePoints), thin,
+                x, y, z, 3, 0.1, dustOptions, frame);
+        return stopped >= 0 ? edgePoints + stopped : -1;
     }
 
     /**
-     * Рисует линию частицами между двумя точками
+     * Отправить частицы в точки фигуры (смещения от центра), начиная с точки from
+     * Дальние от игрока точки прореживаются
+     * @param receivers Если не null, каждая точка одним вызовом рассылается всем этим игрокам
+     * @param thin Если бюджета не хватает на все точки, брать каждую n-ю по всей фигуре,
+     *             а не первые по порядку (иначе от круга остается дуга)
+     * @return Точка, на которой кончился бюджет, или -1, если все точки отправлены
      */
-    private void drawLine(Location start, Location end, Particle.DustOptions dustOptions,
-                          Player player, double spacing) {
-        double distance = start.distance(end);
-        int particles = (int) (distance / spacing);
-
-        double deltaX = (end.getX() - start.getX()) / particles;
-        double deltaY = (end.getY() - start.getY()) / particles;
-        double deltaZ = (end.getZ() - start.getZ()) / particles;
-
-        for (int i = 0; i <= particles; i++) {
-            Location point = new Location(
-                    start.getWorld(),
-                    start.getX() + (deltaX * i),
-                    start.getY() + (deltaY * i),
-                    start.getZ() + (deltaZ * i)
-            );
-
-            player.spawnParticle(Particle.DUST, point, 1, 0, 0, 0, dustOptions); // Исправлено: FIREWORK -> DUST
+    private static int spawnAll(Player player, List<Player> receivers, World world, double[] offsets, int from,
+                                boolean thin, double x, double y, double z, int count, double spread,
+                                Particle.DustOptions dustOptions, VisualizationScheduler.Frame frame) {
+        int points = offsets.length / 3;
+
+        int budgetStride = 1;
+        if (thin && from < points) {
+            int remaining = frame.remaining();
+            if (remaining <= 0) return from;
+            budgetStride = (points - from + remaining - 1) / remaining;
         }
+
+        for (int point = from; point < points; point++) {
+            int i = point * 3;
+            double px = x + offsets[i];
+            double py = y + offsets[i + 1];
+            double pz = z + offsets[i + 2];
+
+            int stride = Math.max(frame.stride(px, py, pz), budgetStride);
+            if (stride > 1 && point % stride != 0) continue;
+
+            if (!frame.take()) {
+                return point;
+            }
+
+            if (receivers != null) {
+                world.spawnParticle(Particle.DUST, receivers, null, px, py, pz, count,
+                        spread, spread, spread, 0, dustOptions, false);
+            } else {
+                player.spawnParticle(Particle.DUST, px, py, pz, count, spread, spread, spread, dustOptions);
+            }
+        }
+        return -1;
     }
 
     /**
      * Показать границы региона всем игрокам в радиусе
      */
     public void showRegionBordersToNearby(Location center, int radius, int viewDistance) {
+        showRegionBordersToNearby(center, radius, viewDistance, null, 5, Color.fromRGB(0, 255, 0));
+    }
+
+    /**
+     * Показать границы региона всем игрокам в радиусе viewDistance от центра
+     * Кадр рассчитывается один раз и рассылается всем зрителям сразу,
+     * зрители заново выбираются ограниченным запросом в каждом кадре
+     *
+     * @param except Игрок, которому границы уже показаны отдельно (может быть null)
+     * @param duration Длительность в секундах
+     */
+    public void showRegionBordersToNearby(Location center, int radius, int viewDistance,
+                                          Player except, int duration, Color color) {
         World world = center.getWorld();
-        if (world == null) return;
+        if (world == null || viewDistance <= 0) return;
+
+        Particle.DustOptions dustOptions = new Particle.DustOptions(color, 0.75f);
+        List<Player> nearby = new ArrayList<>();
+
+        scheduler.schedule(new VisualizationScheduler.Job(center, regionKey(center, KIND_BORDERS), 10, duration * 20) {
+            int cursor;
+
+            @Override
+            protected void render(int age, VisualizationScheduler.Frame frame) {
+                if (age % 10 == 0) {
+                    cursor = 0;
+
+                    nearby.clear();
+                    for (Player viewer : world.getNearbyPlayers(center, viewDistance)) {
+                        if (viewer != except) {
+                            nearby.add(viewer);
+                        }
+                    }
+                }
 
-        world.getPlayers().forEach(player -> {
-            if (player.getLocation().distance(center) <= viewDistance) {
-                showRegionBorders(center, radius, player, 5);
+                if (nearby.isEmpty()) {
+                    pending = false;
+                    return;
+                }
+
+                // Зрители без остатка бюджета пропускают эту часть кадра
+                List<Player> receivers = frame.receivers(nearby);
+                if (receivers.isEmpty()) {
+                    pending = true;
+                    return;
+                }
+
+                cursor = drawCubeEdges(center, radius, dustOptions, null, receivers, frame, cursor, false);
+                pending = cursor >= 0;
             }
         });
     }
@@ -188,38 +224,25 @@ public class ParticleVisualizer {
      */
     public void showCreationAnimation(Location center, int radius, Player player) {
         World world = center.getWorld();
-        if (world == null) return;
-
-        new BukkitRunnable() {
-            int tick = 0;
-            final int maxTicks = 60; // 3 секунды
+        if (world == null || player == null) return;
 
+        // 3 секунды, кадр каждые 2 тика
+        scheduler.schedule(new VisualizationScheduler.Job(player, regionKey(center, KIND_CREATION), 2, 60) {
             @Override
-            public void run() {
-                if (tick >= maxTicks || !player.isOnline()) {
-                    // После анимации показываем обычные границы
-                    showRegionBorders(center, radius, player, 2);
-                    this.cancel();
-                    return;
-                }
-
+            protected void render(int tick, VisualizationScheduler.Frame frame) {
                 // Эффект "волны" - расширяющийся круг частиц
-                double progress = (double) tick / maxTicks;
+                double progress = tick / 60.0;
                 int currentRadius = (int) (radius * progress);
 
-                // Меняем цвет от синего к зеленому
-                int red = (int) (0 * (1 - progress) + 0 * progress);
-                int green = (int) (150 * (1 - progress) + 255 * progress);
-                int blue = (int) (255 * (1 - progress) + 0 * progress);
+                // Цвет меняется от синего к зеленому
+                Particle.DustOptions dustOptions = CREATION_COLORS[tick / 2];
 
-                Color color = Color.fromRGB(red, green, blue);
-                Particle.DustOptions dustOptions = new Particle.DustOptions(color, 1.0f);
-
-                // Рисуем горизонтальный круг на уровне центра
-                drawHorizontalCircle(center, currentRadius, dustOptions, player);
+                // Рисуем горизонтальный круг на уровне центра (анимацию не откладываем:
+                // если бюджета не хватает, точки кадра равномерно прореживаются)
+                drawHorizontalCircle(center, currentRadius, dustOptions, player, frame);
 
                 // Дополнительные эффекты
-                if (tick % 5 == 0) {
+                if (tick % 5 == 0 && frame.take()) {
                     // Вспышки в центре
                     player.spawnParticle(
                             Particle.HAPPY_VILLAGER,
@@ -229,34 +252,23 @@ public class ParticleVisualizer {
                             0
                     );
                 }
+            }
 
-                tick += 2;
+            @Override
+            protected void finish() {
+                // После анимации показываем обычные границы
+                showRegionBorders(center, radius, player, 2);
             }
-        }.runTaskTimer(plugin, 0L, 2L);
+        });
     }
 
     /**
-     * Рисует горизонтальный круг частицами
+     * Рисует горизонтальный круг частицами (и такие же круги выше и ниже на радиус)
      */
-    private void drawHorizontalCircle(Location center, int radius,
-                                      Particle.DustOptions dustOptions, Player player) {
-        int points = radius * 8; // Больше точек для больших кругов
-
-        for (int i = 0; i < points; i++) {
-            double angle = 2 * Math.PI * i / points;
-            double x = center.getX() + radius * Math.cos(angle);
-            double z = center.getZ() + radius * Math.sin(angle);
-
-            Location point = new Location(center.getWorld(), x, center.getY(), z);
-            player.spawnParticle(Particle.DUST, point, 1, 0, 0, 0, dustOptions); // Исправлено: FIREWORK -> DUST
-
-            // Дополнительные круги выше и ниже
-            Location pointUp = point.clone().add(0, radius, 0);
-            Location pointDown = point.clone().subtract(0, radius, 0);
-
-            player.spawnParticle(Particle.DUST, pointUp, 1, 0, 0, 0, dustOptions); // Исправлено: FIREWORK -> DUST
-            player.spawnParticle(Particle.DUST, pointDown, 1, 0, 0, 0, dustOptions); // Исправлено: FIREWORK -> DUST
-        }
+    private void drawHorizontalCircle(Location center, int radius, Particle.DustOptions dustOptions,
+                                      Player player, VisualizationScheduler.Frame frame) {
+        spawnAll(player, null, center.getWorld(), ParticleGeometry.rings(radius), 0, true,
+                center.getX(), center.getY(), center.getZ(), 1, 0, dustOptions, frame);
     }
 
     /**
@@ -264,33 +276,25 @@ public class ParticleVisualizer {
      */
     public void showDestructionAnimation(Location center, int radius, Player player) {
         World world = center.getWorld();
-        if (world == null) return;
+        if (world == null || player == null) return;
 
         // Красный цвет для разрушения
-        Color redColor = Color.fromRGB(255, 0, 0);
-        Particle.DustOptions dustOptions = new Particle.DustOptions(redColor, 1.0f);
-
-        new BukkitRunnable() {
-            int tick = 0;
-            final int maxTicks = 40; // 2 секунды
+        Particle.DustOptions dustOptions = new Particle.DustOptions(Color.fromRGB(255, 0, 0), 1.0f);
 
+        // 2 секунды, кадр каждые 2 тика
+        scheduler.schedule(new VisualizationScheduler.Job(player, regionKey(center, KIND_DESTRUCTION), 2, 40) {
             @Override
-            public void run() {
-                if (tick >= maxTicks || !player.isOnline()) {
-                    this.cancel();
-                    return;
-                }
-
+            protected void render(int tick, VisualizationScheduler.Frame frame) {
                 // Эффект "разрушения" - сжимающийся куб
-                double progress = 1.0 - ((double) tick / maxTicks);
+                double progress = 1.0 - (tick / 40.0);
                 int currentRadius = (int) (radius * progress);
 
                 if (currentRadius > 0) {
-                    drawCubeEdges(center, currentRadius, dustOptions, player);
+                    drawCubeEdges(center, currentRadius, dustOptions, player, null, frame, 0, true);
                 }
 
                 // Дополнительные эффекты взрыва
-                if (tick % 3 == 0) {
+                if (tick % 3 == 0 && frame.take()) {
                     player.spawnParticle(
                             Particle.LARGE_SMOKE,
                             center,
@@ -299,9 +303,33 @@ public class ParticleVisualizer {
                             0.02
                     );
                 }
-
-                tick += 2;
             }
-        }.runTaskTimer(plugin, 0L, 2L);
+        });
+    }
+
+    /**
+     * Снять все показы игрока (при выходе)
+     */
+    public void cancel(Player player) {
+        scheduler.cancel(player.getUniqueId());
+    }
+
+    /**
+     * Остановить все показы (при выключении плагина)
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Ключ показа: мир, блок центра региона и вид показа
+     * (x и z - по 26 бит, y - 10 бит: высота мира не больше 1024 блоков, вид - 2 бита)
+     */
+    private static VisualizationScheduler.Key regionKey(Location center, int kind) {
+        long position = ((long) (center.getBlockX() & 0x3FFFFFF) << 38)
+                | ((long) (center.getBlockZ() & 0x3FFFFFF) << 12)
+                | ((center.getBlockY() & 0x3FF) << 2)
+                | kind;
+        return new VisualizationScheduler.Key(center.getWorld().getUID(), position);
     }
-}
\ No newline at end of file
+}
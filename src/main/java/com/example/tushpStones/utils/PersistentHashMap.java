@@ -0,0 +1,296 @@
+package com.example.tushpStones.utils;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Неизменяемая хэш-таблица (HAMT) со структурным разделением
+ * plus и minus возвращают новую таблицу: копируются только узлы на пути
+ * к ключу (не больше 7 уровней по 32 ветви), остальные узлы общие со старой версией.
+ * Любая версия безопасна для чтения из любого потока.
+ */
+public final class PersistentHashMap<K, V> {
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        return root != null ? (V) root.find(0, hash(key), key) : null;
+    }
+
+    /**
+     * Новая версия с ключом key
+     * @param value не null
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value");
+        }
+
+        boolean[] added = new boolean[1];
+        Node current = root != null ? root : BitmapNode.EMPTY;
+        Node updated = current.assoc(0, hash(key), key, value, added);
+        if (updated == root) return this;
+
+        return new PersistentHashMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Новая версия без ключа key
+     */
+    public PersistentHashMap<K, V> minus(K key) {
+        if (root == null) return this;
+
+        Node updated = root.without(0, hash(key), key);
+        if (updated == root) return this;
+
+        return updated != null ? new PersistentHashMap<>(updated, size - 1) : empty();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null) {
+            root.forEach((BiConsumer<Object, Object>) action);
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    private interface Node {
+        Object find(int shift, int hash, Object key);
+
+        Node assoc(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * @return null, если узел опустел
+         */
+        Node without(int shift, int hash, Object key);
+
+        void forEach(BiConsumer<Object, Object> action);
+    }
+
+    /**
+     * Узел с битовой маской занятых ветвей
+     * array: пары (ключ, значение) или (null, дочерний узел)
+     */
+    private static final class BitmapNode implements Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) return null;
+
+            int i = index(bit) * 2;
+            Object storedKey = array[i];
+            Object storedValue = array[i + 1];
+            if (storedKey == null) {
+                return ((Node) storedValue).find(shift + 5, hash, key);
+            }
+            return key.equals(storedKey) ? storedValue : null;
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bitpos(hash, shift);
+            int i = index(bit) * 2;
+
+            if ((bitmap & bit) == 0) {
+                // Новая ветвь
+                Object[] copy = new Object[array.length + 2];
+                System.arraycopy(array, 0, copy, 0, i);
+                copy[i] = key;
+                copy[i + 1] = value;
+                System.arraycopy(array, i, copy, i + 2, array.length - i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, copy);
+            }
+
+            Object storedKey = array[i];
+            Object storedValue = array[i + 1];
+
+            if (storedKey == null) {
+                Node child = ((Node) storedValue).assoc(shift + 5, hash, key, value, added);
+                return child == storedValue ? this : with(i, null, child);
+            }
+
+            if (key.equals(storedKey)) {
+                return value == storedValue ? this : with(i, key, value);
+            }
+
+            // Два ключа в одной ветви - уходим на уровень ниже
+            added[0] = true;
+            return with(i, null, split(shift + 5, storedKey, storedValue, hash, key, value));
+        }
+
+        @Override
+        public Node without(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) return this;
+
+            int i = index(bit) * 2;
+            Object storedKey = array[i];
+            Object storedValue = array[i + 1];
+
+            if (storedKey == null) {
+                Node child = ((Node) storedValue).without(shift + 5, hash, key);
+                if (child == storedValue) return this;
+                if (child != null) return with(i, null, child);
+            } else if (!key.equals(storedKey)) {
+                return this;
+            }
+
+            // Удаляем ветвь целиком
+            if (bitmap == bit) return null;
+
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node) array[i + 1]).forEach(action);
+                } else {
+                    action.accept(array[i], array[i + 1]);
+                }
+            }
+        }
+
+        private BitmapNode with(int i, Object key, Object value) {
+            Object[] copy = array.clone();
+            copy[i] = key;
+            copy[i + 1] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private static Node split(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+
+            boolean[] ignored = new boolean[1];
+            return EMPTY.assoc(shift, hash1, key1, value1, ignored)
+                    .assoc(shift, hash2, key2, value2, ignored);
+        }
+    }
+
+    /**
+     * Ключи с одинаковым хэшем: линейный список пар
+     */
+    private static final class CollisionNode implements Node {
+
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            if (hash != this.hash) return null;
+
+            int i = indexOf(key);
+            return i >= 0 ? array[i + 1] : null;
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Другой хэш - помещаем этот узел в обычный и добавляем ключ рядом
+                return new BitmapNode(bitpos(this.hash, shift), new Object[]{null, this})
+                        .assoc(shift, hash, key, value, added);
+            }
+
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (array[i + 1] == value) return this;
+
+                Object[] copy = array.clone();
+                copy[i + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+
+            Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        public Node without(int shift, int hash, Object key) {
+            if (hash != this.hash) return this;
+
+            int i = indexOf(key);
+            if (i < 0) return this;
+            if (array.length == 2) return null;
+
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                action.accept(array[i], array[i + 1]);
+            }
+        }
+    }
+}
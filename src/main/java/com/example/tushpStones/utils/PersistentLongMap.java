@@ -0,0 +1,284 @@
+package com.example.tushpStones.utils;
+
+/**
+ * Неизменяемая хэш-таблица (HAMT) с ключами long без упаковки в Long
+ * Устроена как PersistentHashMap: plus и minus копируют только узлы на пути
+ * к ключу, остальные узлы общие со старой версией. Ключи узла лежат
+ * в long[], поиск - это сравнение примитивов.
+ * Любая версия безопасна для чтения из любого потока.
+ */
+public final class PersistentLongMap<V> {
+
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentLongMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return root != null ? (V) root.find(0, hash(key), key) : null;
+    }
+
+    /**
+     * Новая версия с ключом key
+     * @param value не null
+     */
+    public PersistentLongMap<V> plus(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value");
+        }
+
+        boolean[] added = new boolean[1];
+        Node current = root != null ? root : BitmapNode.EMPTY;
+        Node updated = current.assoc(0, hash(key), key, value, added);
+        if (updated == root) return this;
+
+        return new PersistentLongMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Новая версия без ключа key
+     */
+    public PersistentLongMap<V> minus(long key) {
+        if (root == null) return this;
+
+        Node updated = root.without(0, hash(key), key);
+        if (updated == root) return this;
+
+        return updated != null ? new PersistentLongMap<>(updated, size - 1) : empty();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Перемешивание всех 64 бит ключа (упакованные координаты различаются
+     * в основном младшими битами каждой компоненты)
+     */
+    private static int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    private interface Node {
+        Object find(int shift, int hash, long key);
+
+        Node assoc(int shift, int hash, long key, Object value, boolean[] added);
+
+        /**
+         * @return null, если узел опустел
+         */
+        Node without(int shift, int hash, long key);
+    }
+
+    /**
+     * Узел с битовой маской занятых ветвей
+     * values[i] - значение для keys[i] или дочерний узел (тогда keys[i] не используется)
+     */
+    private static final class BitmapNode implements Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, new long[0], new Object[0]);
+
+        final int bitmap;
+        final long[] keys;
+        final Object[] values;
+
+        BitmapNode(int bitmap, long[] keys, Object[] values) {
+            this.bitmap = bitmap;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Object find(int shift, int hash, long key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) return null;
+
+            int i = index(bit);
+            Object stored = values[i];
+            if (stored instanceof Node) {
+                return ((Node) stored).find(shift + 5, hash, key);
+            }
+            return keys[i] == key ? stored : null;
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, long key, Object value, boolean[] added) {
+            int bit = bitpos(hash, shift);
+            int i = index(bit);
+
+            if ((bitmap & bit) == 0) {
+                // Новая ветвь
+                long[] keysCopy = new long[keys.length + 1];
+                Object[] valuesCopy = new Object[values.length + 1];
+                System.arraycopy(keys, 0, keysCopy, 0, i);
+                System.arraycopy(values, 0, valuesCopy, 0, i);
+                keysCopy[i] = key;
+                valuesCopy[i] = value;
+                System.arraycopy(keys, i, keysCopy, i + 1, keys.length - i);
+                System.arraycopy(values, i, valuesCopy, i + 1, values.length - i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, keysCopy, valuesCopy);
+            }
+
+            Object stored = values[i];
+
+            if (stored instanceof Node) {
+                Node child = ((Node) stored).assoc(shift + 5, hash, key, value, added);
+                return child == stored ? this : with(i, 0L, child);
+            }
+
+            if (keys[i] == key) {
+                return value == stored ? this : with(i, key, value);
+            }
+
+            // Два ключа в одной ветви - уходим на уровень ниже
+            added[0] = true;
+            return with(i, 0L, split(shift + 5, keys[i], stored, hash, key, value));
+        }
+
+        @Override
+        public Node without(int shift, int hash, long key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) return this;
+
+            int i = index(bit);
+            Object stored = values[i];
+
+            if (stored instanceof Node) {
+                Node child = ((Node) stored).without(shift + 5, hash, key);
+                if (child == stored) return this;
+                if (child != null) return with(i, 0L, child);
+            } else if (keys[i] != key) {
+                return this;
+            }
+
+            // Удаляем ветвь целиком
+            if (bitmap == bit) return null;
+
+            long[] keysCopy = new long[keys.length - 1];
+            Object[] valuesCopy = new Object[values.length - 1];
+            System.arraycopy(keys, 0, keysCopy, 0, i);
+            System.arraycopy(values, 0, valuesCopy, 0, i);
+            System.arraycopy(keys, i + 1, keysCopy, i, keys.length - i - 1);
+            System.arraycopy(values, i + 1, valuesCopy, i, values.length - i - 1);
+            return new BitmapNode(bitmap & ~bit, keysCopy, valuesCopy);
+        }
+
+        private BitmapNode with(int i, long key, Object value) {
+            long[] keysCopy = keys.clone();
+            Object[] valuesCopy = values.clone();
+            keysCopy[i] = key;
+            valuesCopy[i] = value;
+            return new BitmapNode(bitmap, keysCopy, valuesCopy);
+        }
+
+        private static Node split(int shift, long key1, Object value1, int hash2, long key2, Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new long[]{key1, key2}, new Object[]{value1, value2});
+            }
+
+            boolean[] ignored = new boolean[1];
+            return EMPTY.assoc(shift, hash1, key1, value1, ignored)
+                    .assoc(shift, hash2, key2, value2, ignored);
+        }
+    }
+
+    /**
+     * Ключи с одинаковым хэшем: линейный список пар
+     */
+    private static final class CollisionNode implements Node {
+
+        final int hash;
+        final long[] keys;
+        final Object[] values;
+
+        CollisionNode(int hash, long[] keys, Object[] values) {
+            this.hash = hash;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        private int indexOf(long key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public Object find(int shift, int hash, long key) {
+            if (hash != this.hash) return null;
+
+            int i = indexOf(key);
+            return i >= 0 ? values[i] : null;
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, long key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Другой хэш - помещаем этот узел в обычный и добавляем ключ рядом
+                return new BitmapNode(bitpos(this.hash, shift), new long[1], new Object[]{this})
+                        .assoc(shift, hash, key, value, added);
+            }
+
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (values[i] == value) return this;
+
+                Object[] valuesCopy = values.clone();
+                valuesCopy[i] = value;
+                return new CollisionNode(hash, keys, valuesCopy);
+            }
+
+            long[] keysCopy = new long[keys.length + 1];
+            Object[] valuesCopy = new Object[values.length + 1];
+            System.arraycopy(keys, 0, keysCopy, 0, keys.length);
+            System.arraycopy(values, 0, valuesCopy, 0, values.length);
+            keysCopy[keys.length] = key;
+            valuesCopy[values.length] = value;
+            added[0] = true;
+            return new CollisionNode(hash, keysCopy, valuesCopy);
+        }
+
+        @Override
+        public Node without(int shift, int hash, long key) {
+            if (hash != this.hash) return this;
+
+            int i = indexOf(key);
+            if (i < 0) return this;
+            if (keys.length == 1) return null;
+
+            long[] keysCopy = new long[keys.length - 1];
+            Object[] valuesCopy = new Object[values.length - 1];
+            System.arraycopy(keys, 0, keysCopy, 0, i);
+            System.arraycopy(values, 0, valuesCopy, 0, i);
+            System.arraycopy(keys, i + 1, keysCopy, i, keys.length - i - 1);
+            System.arraycopy(values, i + 1, valuesCopy, i, values.length - i - 1);
+            return new CollisionNode(hash, keysCopy, valuesCopy);
+        }
+    }
+}
@@ -1,39 +1,71 @@
 package com.example.tushpStones.utils;
 
+import com.example.tushpStones.managers.ConfigManager;
+import com.example.tushpStones.managers.NameCache;
 import com.example.tushpStones.models.ProtectedRegion;
-import org.bukkit.ChatColor;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.ArmorStand;
-import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Display;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.TextDisplay;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
 /**
  * Голограмма над регионом с информацией о прочности
+ * Текст перерисовывается только при изменении прочности или владельца,
+ * не чаще одного раза в holograms.update-interval тиков
+ *
+ * Сущность не сохраняется в мире: она существует, пока загружен чанк центра региона.
+ * Создается в потоке области центра, перерисовывается и удаляется в потоке сущности.
  */
 public class RegionHologram {
 
+    /**
+     * Метка сущностей голограмм (по ней находятся оставшиеся после сбоев)
+     */
+    public static final String MARKER_TAG = "tushpstones_hologram";
+
+    private static final int BARS = 10; // Количество сегментов в полоске
+    private static final long NANOS_PER_TICK = 50_000_000L;
+
     private final Plugin plugin;
     private final ProtectedRegion region;
-    private ArmorStand hologramStand;
-    private BukkitRunnable updateTask;
+    private final NameCache names;
+    private final ConfigManager configManager;
+    private final TaskScheduler scheduler;
+    private volatile TextDisplay display;
 
-    // Цвета для прогресс-бара
-    private static final String COLOR_FULL = "&a";
-    private static final String COLOR_HALF = "&e";
-    private static final String COLOR_LOW = "&c";
-    private static final String COLOR_EMPTY = "&7";
+    // Отложенная перерисовка (если прошлая была меньше update-interval назад)
+    private volatile TaskScheduler.Task pendingUpdate;
+    // Время последней перерисовки в тиках (по часам, а не счетчику тиков сервера,
+    // которого на Folia нет)
+    private long lastRenderTick = Long.MIN_VALUE / 2;
 
-    public RegionHologram(Plugin plugin, ProtectedRegion region) {
+    // Последнее отрисованное состояние
+    private String renderedOwner;
+    private boolean renderedHealthEnabled;
+    private int renderedCurrent = -1;
+    private int renderedMax = -1;
+
+    public RegionHologram(Plugin plugin, ProtectedRegion region, NameCache names, ConfigManager configManager,
+                          TaskScheduler scheduler) {
         this.plugin = plugin;
         this.region = region;
+        this.names = names;
+        this.configManager = configManager;
+        this.scheduler = scheduler;
     }
 
     /**
-     * Создать голограмму над регионом
+     * Создать голограмму над регионом (в потоке, владеющем центром региона)
+     * @param visibleByDefault false - голограмма видна только игрокам, которым ее показали (show)
      */
-    public void create() {
+    public void create(boolean visibleByDefault) {
         try {
             World world = region.getLocation().getWorld();
             if (world == null) return;
@@ -41,23 +73,20 @@ public class RegionHologram {
             // Удаляем старую голограмму если есть
             remove();
 
-            // Позиция голограммы - на 2.5 блока выше центра
-            Location hologramLoc = region.getLocation().clone().add(0.5, 2.5, 0.5);
-
-            // Создаем ArmorStand
-            hologramStand = (ArmorStand) world.spawnEntity(hologramLoc, EntityType.ARMOR_STAND);
-            hologramStand.setVisible(false);
-            hologramStand.setCustomNameVisible(true);
-            hologramStand.setGravity(false);
-            hologramStand.setMarker(true);
-            hologramStand.setSmall(true);
-            hologramStand.setInvulnerable(true);
+            // Позиция голограммы - на holograms.height блоков выше центра
+            double height = configManager.getSnapshot().getHologramHeight();
+            Location hologramLoc = region.getLocation().clone().add(0.5, height, 0.5);
 
-            // Обновляем текст
-            updateText();
+            display = world.spawn(hologramLoc, TextDisplay.class, entity -> {
+                entity.setBillboard(Display.Billboard.CENTER);
+                entity.setGravity(false);
+                entity.setInvulnerable(true);
+                entity.setPersistent(false);
+                entity.setVisibleByDefault(visibleByDefault);
+                entity.addScoreboardTag(MARKER_TAG);
+            });
 
-            // Запускаем периодическое обновление
-            startUpdateTask();
+            render();
 
         } catch (Exception e) {
             plugin.getLogger().warning("Ошибка создания голограммы: " + e.getMessage());
@@ -65,18 +94,19 @@ public class RegionHologram {
     }
 
     /**
-     * Удалить голограмму
+     * Удалить голограмму (из любого потока)
      */
     public void remove() {
         try {
-            if (updateTask != null) {
-                updateTask.cancel();
-                updateTask = null;
-            }
+            cancelPendingUpdate();
 
-            if (hologramStand != null && !hologramStand.isDead()) {
-                hologramStand.remove();
-                hologramStand = null;
+            TextDisplay current = display;
+            display = null;
+            renderedOwner = null;
+            lastRenderTick = Long.MIN_VALUE / 2;
+
+            if (current != null) {
+                scheduler.runFor(current, current::remove);
             }
         } catch (Exception e) {
             plugin.getLogger().warning("Ошибка удаления голограммы: " + e.getMessage());
@@ -84,106 +114,172 @@ public class RegionHologram {
     }
 
     /**
-     * Обновить текст голограммы
+     * Обновить текст голограммы (после урона, улучшения или смены владельца)
+     * Можно вызывать из любого потока: перерисовка выполняется в потоке сущности
      */
     public void update() {
-        updateText();
+        TextDisplay current = display;
+        if (current == null) return;
+
+        scheduler.runFor(current, () -> scheduleRender(current));
+    }
+
+    private void scheduleRender(TextDisplay current) {
+        if (current != display || current.isDead() || pendingUpdate != null) return;
+
+        int interval = configManager.getSnapshot().getHologramUpdateInterval();
+        long ticksSinceRender = currentTick() - lastRenderTick;
+
+        if (ticksSinceRender >= interval) {
+            render();
+            return;
+        }
+
+        // Частые изменения (рейд) сливаются в одну перерисовку
+        pendingUpdate = scheduler.runForLater(current, () -> {
+            pendingUpdate = null;
+            render();
+        }, interval - ticksSinceRender);
     }
 
     /**
-     * Обновить текст голограммы
+     * Перерисовать текст, если отображаемые данные изменились
      */
-    private void updateText() {
-        if (hologramStand == null || hologramStand.isDead()) return;
+    private void render() {
+        TextDisplay display = this.display;
+        if (display == null || display.isDead()) return;
 
         String ownerName = getOwnerName();
-        String healthBar = createHealthBar();
+        boolean healthEnabled = region.isHealthEnabled();
+        int current = region.getCurrentHealth();
+        int max = region.getMaxHealth();
+
+        if (ownerName.equals(renderedOwner) && healthEnabled == renderedHealthEnabled
+                && current == renderedCurrent && max == renderedMax) {
+            return;
+        }
 
-        String displayText = ChatColor.translateAlternateColorCodes('&',
-                "&7[&6Регион: &e" + ownerName + "&7] &r" + healthBar
-        );
+        renderedOwner = ownerName;
+        renderedHealthEnabled = healthEnabled;
+        renderedCurrent = current;
+        renderedMax = max;
+        lastRenderTick = currentTick();
 
-        hologramStand.setCustomName(displayText);
+        display.text(Component.text()
+                .append(Component.text("[", NamedTextColor.GRAY))
+                .append(Component.text("Регион: ", NamedTextColor.GOLD))
+                .append(Component.text(ownerName, NamedTextColor.YELLOW))
+                .append(Component.text("] ", NamedTextColor.GRAY))
+                .append(createHealthBar(healthEnabled, current, max))
+                .build());
     }
 
-    /**
-     * Запустить задачу периодического обновления
-     */
-    private void startUpdateTask() {
-        updateTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (hologramStand == null || hologramStand.isDead()) {
-                    this.cancel();
-                    return;
-                }
-                updateText();
-            }
-        };
-        // Обновляем каждые 20 тиков (1 секунда)
-        updateTask.runTaskTimer(plugin, 20L, 20L);
+    private void cancelPendingUpdate() {
+        TaskScheduler.Task task = pendingUpdate;
+        if (task != null) {
+            task.cancel();
+            pendingUpdate = null;
+        }
+    }
+
+    private static long currentTick() {
+        return System.nanoTime() / NANOS_PER_TICK;
     }
 
     /**
-     * Получить имя владельца
+     * Получить имя владельца (из кэша, без поиска профиля)
      */
     private String getOwnerName() {
-        String name = plugin.getServer().getOfflinePlayer(region.getOwner()).getName();
-        return name != null ? name : "Неизвестно";
+        return names.getName(region.getOwner());
     }
 
     /**
      * Создать визуальный прогресс-бар здоровья
      */
-    private String createHealthBar() {
-        int current = region.getCurrentHealth();
-        int max = region.getMaxHealth();
-
-        if (max <= 0) return "";
+    private Component createHealthBar(boolean healthEnabled, int current, int max) {
+        if (max <= 0) return Component.empty();
 
         // Если система прочности отключена для этого региона
-        if (!region.isHealthEnabled()) {
-            return ChatColor.translateAlternateColorCodes('&', "&a✓ Защищено");
+        if (!healthEnabled) {
+            return Component.text("✓ Защищено", NamedTextColor.GREEN);
         }
 
-        int percentage = (int) ((double) current / max * 100);
-        int bars = 10; // Количество сегментов в полоске
-        int filledBars = (int) ((double) current / max * bars);
+        TextComponent.Builder bar = Component.text();
 
-        StringBuilder bar = new StringBuilder();
-        bar.append(getHealthColor(percentage));
+        if (configManager.getSnapshot().isHologramHealthBar()) {
+            int percentage = (int) ((double) current / max * 100);
+            int filledBars = Math.max(0, Math.min(BARS, (int) ((double) current / max * BARS)));
 
-        // Символы для прогресс-бара
-        for (int i = 0; i < bars; i++) {
-            if (i < filledBars) {
-                bar.append("█");
-            } else {
-                bar.append(COLOR_EMPTY).append("░");
-            }
+            bar.append(Component.text("█".repeat(filledBars), getHealthColor(percentage)));
+            bar.append(Component.text("░".repeat(BARS - filledBars), NamedTextColor.GRAY));
+            bar.append(Component.text(" "));
         }
 
-        bar.append(" &7[").append(current).append("&c/").append(max).append("&7]");
-
-        return ChatColor.translateAlternateColorCodes('&', bar.toString());
+        return bar
+                .append(Component.text("[" + current, NamedTextColor.GRAY))
+                .append(Component.text("/" + max, NamedTextColor.RED))
+                .append(Component.text("]", NamedTextColor.GRAY))
+                .build();
     }
 
     /**
      * Получить цвет в зависимости от процента здоровья
      */
-    private String getHealthColor(int percentage) {
+    private NamedTextColor getHealthColor(int percentage) {
         if (percentage > 60) {
-            return COLOR_FULL;
+            return NamedTextColor.GREEN;
         } else if (percentage > 30) {
-            return COLOR_HALF;
+            return NamedTextColor.YELLOW;
         } else {
-            return COLOR_LOW;
+            return NamedTextColor.RED;
+        }
+    }
+
+    /**
+     * Показать голограмму игроку (если она скрыта по умолчанию)
+     */
+    public void show(Player player) {
+        TextDisplay current = display;
+        if (current != null && !current.isDead()) {
+            player.showEntity(plugin, current);
+        }
+    }
+
+    /**
+     * Скрыть голограмму от игрока
+     */
+    public void hide(Player player) {
+        TextDisplay current = display;
+        if (current != null && !current.isDead()) {
+            player.hideEntity(plugin, current);
+        }
+    }
+
+    /**
+     * Является ли сущность голограммой плагина: текущей (с меткой)
+     * или ArmorStand из прошлых версий, которые сохранялись в мире
+     */
+    public static boolean isHologramEntity(Entity entity) {
+        if (entity.getScoreboardTags().contains(MARKER_TAG)) {
+            return true;
+        }
+
+        if (entity instanceof ArmorStand) {
+            ArmorStand stand = (ArmorStand) entity;
+            String name = stand.getCustomName();
+            return stand.isMarker() && !stand.isVisible() && name != null && name.contains("Регион: ");
         }
+        return false;
+    }
+
+    public ProtectedRegion getRegion() {
+        return region;
     }
 
     /**
-     * Получить ArmorStand голограммы
+     * Получить сущность голограммы
      */
-    public ArmorStand getHologramStand() {
-        return hologramStand;
+    public TextDisplay getDisplay() {
+        return display;
     }
-}
\ No newline at end of file
+}
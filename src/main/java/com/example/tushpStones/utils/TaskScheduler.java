@@ -0,0 +1,188 @@
+package com.example.tushpStones.utils;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Планировщик задач с поддержкой Folia
+ * На Folia каждая область мира тикает в своем потоке, поэтому задача выполняется
+ * планировщиком владельца: области (RegionScheduler), сущности (EntityScheduler)
+ * или глобальным (GlobalRegionScheduler). На Paper и Bukkit все задачи
+ * выполняются в основном потоке через обычный планировщик.
+ *
+ * runAt и runFor выполняют задачу сразу, если текущий поток уже владеет
+ * локацией или сущностью (на Paper - основной поток).
+ */
+public final class TaskScheduler {
+
+    private static final boolean FOLIA = detectFolia();
+
+    /**
+     * Запущенная задача
+     */
+    public interface Task {
+        void cancel();
+    }
+
+    private final Plugin plugin;
+
+    public TaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    private static boolean detectFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Сервер работает на Folia (нет единого основного потока)
+     */
+    public static boolean isFolia() {
+        return FOLIA;
+    }
+
+    // ═══ ГЛОБАЛЬНЫЕ ЗАДАЧИ ═══
+
+    /**
+     * Выполнить задачу в следующем тике (основной поток или глобальная область)
+     */
+    public void runGlobal(Runnable task) {
+        if (FOLIA) {
+            Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * Повторяющаяся глобальная задача (автосохранение и т.п.)
+     */
+    public Task runGlobalTimer(Runnable task, long delay, long period) {
+        if (FOLIA) {
+            return wrap(Bukkit.getGlobalRegionScheduler()
+                    .runAtFixedRate(plugin, t -> task.run(), Math.max(1, delay), period));
+        }
+        return wrap(Bukkit.getScheduler().runTaskTimer(plugin, task, delay, period));
+    }
+
+    // ═══ ЗАДАЧИ ОБЛАСТИ МИРА ═══
+
+    /**
+     * Владеет ли текущий поток локацией
+     */
+    public boolean isOwnedByCurrentThread(Location location) {
+        return FOLIA ? Bukkit.isOwnedByCurrentRegion(location) : Bukkit.isPrimaryThread();
+    }
+
+    /**
+     * Выполнить задачу в потоке, владеющем локацией (сразу, если это текущий поток)
+     */
+    public void runAt(Location location, Runnable task) {
+        if (isOwnedByCurrentThread(location)) {
+            task.run();
+        } else if (FOLIA) {
+            Bukkit.getRegionScheduler().execute(plugin, location, task);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * Выполнить задачу в потоке, владеющем локацией, через delay тиков
+     */
+    public Task runAtLater(Location location, Runnable task, long delay) {
+        if (FOLIA) {
+            return wrap(Bukkit.getRegionScheduler()
+                    .runDelayed(plugin, location, t -> task.run(), Math.max(1, delay)));
+        }
+        return wrap(Bukkit.getScheduler().runTaskLater(plugin, task, delay));
+    }
+
+    /**
+     * Повторяющаяся задача в потоке, владеющем локацией
+     */
+    public Task runAtTimer(Location location, Runnable task, long delay, long period) {
+        if (FOLIA) {
+            return wrap(Bukkit.getRegionScheduler()
+                    .runAtFixedRate(plugin, location, t -> task.run(), Math.max(1, delay), period));
+        }
+        return wrap(Bukkit.getScheduler().runTaskTimer(plugin, task, delay, period));
+    }
+
+    // ═══ ЗАДАЧИ СУЩНОСТИ ═══
+
+    /**
+     * Владеет ли текущий поток сущностью
+     */
+    public boolean isOwnedByCurrentThread(Entity entity) {
+        return FOLIA ? Bukkit.isOwnedByCurrentRegion(entity) : Bukkit.isPrimaryThread();
+    }
+
+    /**
+     * Выполнить задачу в потоке сущности (сразу, если это текущий поток)
+     * Если сущность удалена до выполнения, задача не выполняется
+     */
+    public void runFor(Entity entity, Runnable task) {
+        if (isOwnedByCurrentThread(entity)) {
+            task.run();
+        } else if (FOLIA) {
+            entity.getScheduler().run(plugin, t -> task.run(), null);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * Выполнить задачу в потоке сущности через delay тиков
+     * @return null, если сущность уже удалена
+     */
+    public Task runForLater(Entity entity, Runnable task, long delay) {
+        if (FOLIA) {
+            return wrap(entity.getScheduler().runDelayed(plugin, t -> task.run(), null, Math.max(1, delay)));
+        }
+        return wrap(Bukkit.getScheduler().runTaskLater(plugin, task, delay));
+    }
+
+    /**
+     * Повторяющаяся задача в потоке сущности
+     * На Folia задача снимается автоматически, когда сущность удаляется (выход игрока)
+     * @return null, если сущность уже удалена
+     */
+    public Task runForTimer(Entity entity, Runnable task, long delay, long period) {
+        if (FOLIA) {
+            return wrap(entity.getScheduler()
+                    .runAtFixedRate(plugin, t -> task.run(), null, Math.max(1, delay), period));
+        }
+        return wrap(Bukkit.getScheduler().runTaskTimer(plugin, task, delay, period));
+    }
+
+    // ═══ ФОНОВЫЕ ЗАДАЧИ ═══
+
+    /**
+     * Выполнить задачу вне игровых потоков (диск, поиск профилей)
+     */
+    public void runAsync(Runnable task) {
+        if (FOLIA) {
+            Bukkit.getAsyncScheduler().runNow(plugin, t -> task.run());
+        } else {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+        }
+    }
+
+    private static Task wrap(ScheduledTask task) {
+        return task != null ? task::cancel : null;
+    }
+
+    private static Task wrap(BukkitTask task) {
+        return task::cancel;
+    }
+}
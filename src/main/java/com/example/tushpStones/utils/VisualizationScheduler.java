@@ -0,0 +1,453 @@
+package com.example.tushpStones.utils;
+
+import com.example.tushpStones.managers.ConfigManager;
+import com.example.tushpStones.managers.ConfigSnapshot;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Общий планировщик визуализаций
+ * Все активные показы частиц обслуживаются одной повторяющейся задачей.
+ * На тройку (игрок, регион, вид показа) приходится не больше одного показа:
+ * повторный вызов заменяет текущий, а при выходе игрока снимаются все его показы.
+ *
+ * Каждому игроку за тик выделяется бюджет пакетов частиц (particles.budget.per-tick),
+ * а дальние точки фигур прореживаются (particles.lod-distance). Показы нескольким
+ * игрокам списывают пакеты из бюджетов всех получателей.
+ *
+ * На Folia общей задачи нет: каждый показ выполняется задачей игрока
+ * (или области центра для показов нескольким игрокам). Бюджет игрока по-прежнему
+ * общий для всех его показов: он меняется только в потоке, владеющем игроком,
+ * а показ нескольким игрокам рассылается лишь тем, кем владеет поток области центра.
+ */
+public class VisualizationScheduler {
+
+    // Folia: общего тика нет, тик бюджета считается по времени
+    private static final long NANOS_PER_TICK = 50_000_000L;
+
+    private final ConfigManager configManager;
+    private final TaskScheduler taskScheduler;
+
+    // Игрок -> его активные показы
+    private final Map<UUID, List<Job>> jobs = new HashMap<>();
+    // Показы сразу нескольким игрокам (по одному на регион)
+    private final List<Job> sharedJobs = new ArrayList<>();
+    // Показы, запущенные во время обхода (откладываются до его конца)
+    private final List<Job> scheduledDuringTick = new ArrayList<>();
+    private boolean ticking;
+    private long tickCount;
+
+    // Бюджеты игроков на текущий тик
+    private final Map<UUID, Frame> viewerFrames = new ConcurrentHashMap<>();
+    // Кадр показа нескольким игрокам (переиспользуется)
+    private final Frame sharedFrame = new Frame(this);
+
+    private TaskScheduler.Task task;
+
+    // Folia: игрок -> (ключ региона -> показ) и показы нескольким игрокам
+    private final Map<UUID, Map<Key, Job>> regionizedJobs = new ConcurrentHashMap<>();
+    private final Map<Key, Job> regionizedSharedJobs = new ConcurrentHashMap<>();
+
+    public VisualizationScheduler(ConfigManager configManager, TaskScheduler taskScheduler) {
+        this.configManager = configManager;
+        this.taskScheduler = taskScheduler;
+    }
+
+    /**
+     * Запустить показ, заменив текущий показ с тем же ключом этому игроку
+     */
+    public void schedule(Job job) {
+        if (TaskScheduler.isFolia()) {
+            scheduleRegionized(job);
+            return;
+        }
+
+        if (ticking) {
+            scheduledDuringTick.add(job);
+            return;
+        }
+
+        List<Job> viewerJobs = job.viewer != null
+                ? jobs.computeIfAbsent(job.viewer.getUniqueId(), k -> new ArrayList<>(2))
+                : sharedJobs;
+        for (int i = 0; i < viewerJobs.size(); i++) {
+            if (viewerJobs.get(i).key.equals(job.key)) {
+                viewerJobs.set(i, job);
+                return;
+            }
+        }
+        viewerJobs.add(job);
+
+        if (task == null) {
+            task = taskScheduler.runGlobalTimer(this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Снять все показы игрока (выход с сервера)
+     */
+    public void cancel(UUID viewer) {
+        jobs.remove(viewer);
+        viewerFrames.remove(viewer);
+
+        Map<Key, Job> owned = regionizedJobs.remove(viewer);
+        if (owned != null) {
+            owned.values().forEach(Job::stop);
+        }
+    }
+
+    /**
+     * Снять все показы и остановить задачу
+     */
+    public void shutdown() {
+        jobs.clear();
+        sharedJobs.clear();
+        viewerFrames.clear();
+        stopTask();
+
+        for (Map<Key, Job> owned : regionizedJobs.values()) {
+            owned.values().forEach(Job::stop);
+        }
+        regionizedJobs.clear();
+        regionizedSharedJobs.values().forEach(Job::stop);
+        regionizedSharedJobs.clear();
+    }
+
+    /**
+     * Folia: показ получает свою задачу в потоке игрока или области центра
+     */
+    private void scheduleRegionized(Job job) {
+        Map<Key, Job> owned = job.viewer != null
+                ? regionizedJobs.computeIfAbsent(job.viewer.getUniqueId(), k -> new ConcurrentHashMap<>())
+                : regionizedSharedJobs;
+
+        Job previous = owned.put(job.key, job);
+        if (previous != null) {
+            previous.stop();
+        }
+
+        Frame jobFrame = new Frame(this);
+        Runnable tick = () -> tickRegionized(owned, job, jobFrame);
+        job.task = job.viewer != null
+                ? taskScheduler.runForTimer(job.viewer, tick, 1L, 1L)
+                : taskScheduler.runAtTimer(job.anchor, tick, 1L, 1L);
+
+        if (job.task == null) {
+            owned.remove(job.key, job); // Игрок уже вышел
+        }
+    }
+
+    private void tickRegionized(Map<Key, Job> owned, Job job, Frame jobFrame) {
+        if (job.age >= job.duration) {
+            job.stop();
+            owned.remove(job.key, job);
+            job.finish();
+            return;
+        }
+
+        if (job.age % job.period == 0 || job.pending) {
+            long now = System.nanoTime() / NANOS_PER_TICK;
+            if (job.viewer != null) {
+                job.render(job.age, frameFor(job.viewer, now));
+            } else {
+                jobFrame.resetShared(now);
+                job.render(job.age, jobFrame);
+            }
+        }
+        job.age++;
+    }
+
+    private void tick() {
+        List<Job> finished = null;
+        ticking = true;
+        tickCount++;
+
+        try {
+            Iterator<List<Job>> viewers = jobs.values().iterator();
+            while (viewers.hasNext()) {
+                List<Job> viewerJobs = viewers.next();
+                Frame frame = null;
+
+                for (int i = viewerJobs.size() - 1; i >= 0; i--) {
+                    Job job = viewerJobs.get(i);
+
+                    if (!job.viewer.isOnline()) {
+                        viewerJobs.remove(i);
+                        continue;
+                    }
+
+                    if (job.age >= job.duration) {
+                        viewerJobs.remove(i);
+                        if (finished == null) finished = new ArrayList<>();
+                        finished.add(job);
+                        continue;
+                    }
+
+                    if (job.age % job.period == 0 || job.pending) {
+                        if (frame == null) {
+                            frame = frameFor(job.viewer, tickCount);
+                        }
+                        job.render(job.age, frame);
+                    }
+                    job.age++;
+                }
+
+                if (viewerJobs.isEmpty()) {
+                    viewers.remove();
+                }
+            }
+
+            // Общий кадр: без прореживания (зрители стоят на разном расстоянии),
+            // пакеты списываются из бюджетов получателей
+            for (int i = sharedJobs.size() - 1; i >= 0; i--) {
+                Job job = sharedJobs.get(i);
+
+                if (job.age >= job.duration) {
+                    sharedJobs.remove(i);
+                    continue;
+                }
+
+                if (job.age % job.period == 0 || job.pending) {
+                    sharedFrame.resetShared(tickCount);
+                    job.render(job.age, sharedFrame);
+                }
+                job.age++;
+            }
+        } finally {
+            ticking = false;
+        }
+
+        if (finished != null) {
+            for (Job job : finished) {
+                job.finish();
+            }
+        }
+
+        if (!scheduledDuringTick.isEmpty()) {
+            List<Job> pending = new ArrayList<>(scheduledDuringTick);
+            scheduledDuringTick.clear();
+            pending.forEach(this::schedule);
+        }
+
+        if (jobs.isEmpty() && sharedJobs.isEmpty()) {
+            stopTask();
+        }
+    }
+
+    /**
+     * Бюджет игрока на тик tick (сбрасывается при первом обращении в новом тике)
+     */
+    private Frame frameFor(Player viewer, long tick) {
+        Frame frame = viewerFrames.computeIfAbsent(viewer.getUniqueId(), k -> new Frame(null));
+        if (frame.tick != tick) {
+            ConfigSnapshot settings = configManager.getSnapshot();
+            frame.reset(viewer, tick, settings.getParticleBudgetPerTick(), settings.getParticleLodDistance());
+        }
+        return frame;
+    }
+
+    private void stopTask() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Бюджет и положение игрока на текущий тик
+     * Кадр показа нескольким игрокам своего бюджета не имеет: он равен
+     * наименьшему остатку среди получателей, и каждый пакет списывается у всех
+     */
+    public static final class Frame {
+        // Планировщик общего кадра (у кадров игроков - null)
+        private final VisualizationScheduler owner;
+        private long tick = -1;
+        private int remaining;
+        private double viewerX, viewerY, viewerZ;
+        private double lodDistanceSquared;
+
+        // Общий кадр: бюджеты получателей и сами получатели на этот тик
+        private final List<Frame> payers = new ArrayList<>();
+        private final List<Player> recipients = new ArrayList<>();
+
+        Frame(VisualizationScheduler owner) {
+            this.owner = owner;
+        }
+
+        void reset(Player viewer, long tick, int budget, double lodDistance) {
+            Location location = viewer.getLocation();
+            viewerX = location.getX();
+            viewerY = location.getY();
+            viewerZ = location.getZ();
+            this.tick = tick;
+            remaining = budget;
+            lodDistanceSquared = lodDistance * lodDistance;
+        }
+
+        void resetShared(long tick) {
+            this.tick = tick;
+            remaining = 0;
+            lodDistanceSquared = 0;
+            payers.clear();
+            recipients.clear();
+        }
+
+        /**
+         * Общий кадр: выбрать получателей, у которых остался бюджет на этот тик
+         * (на Folia - только игроков, которыми владеет текущий поток)
+         * @return Кому отправлять кадр (список переиспользуется)
+         */
+        public List<Player> receivers(List<Player> candidates) {
+            payers.clear();
+            recipients.clear();
+
+            int budget = Integer.MAX_VALUE;
+            for (int i = 0, size = candidates.size(); i < size; i++) {
+                Player candidate = candidates.get(i);
+                if (!owner.taskScheduler.isOwnedByCurrentThread(candidate)) continue;
+
+                Frame payer = owner.frameFor(candidate, tick);
+                if (payer.remaining <= 0) continue;
+
+                payers.add(payer);
+                recipients.add(candidate);
+                budget = Math.min(budget, payer.remaining);
+            }
+
+            remaining = recipients.isEmpty() ? 0 : budget;
+            return recipients;
+        }
+
+        /**
+         * Сколько пакетов еще можно отправить в этом тике
+         */
+        public int remaining() {
+            return remaining;
+        }
+
+        /**
+         * Списать один пакет из бюджета
+         * @return false, если бюджет на этот тик исчерпан
+         */
+        public boolean take() {
+            if (remaining <= 0) return false;
+            remaining--;
+            for (int i = 0, size = payers.size(); i < size; i++) {
+                payers.get(i).remaining--;
+            }
+            return true;
+        }
+
+        /**
+         * Прореживание точки по расстоянию до игрока:
+         * 1 - каждая точка, 2 - каждая вторая, ... до 8
+         */
+        public int stride(double x, double y, double z) {
+            if (lodDistanceSquared <= 0) return 1;
+
+            double dx = x - viewerX;
+            double dy = y - viewerY;
+            double dz = z - viewerZ;
+            double distanceSquared = dx * dx + dy * dy + dz * dz;
+
+            if (distanceSquared <= lodDistanceSquared) return 1;
+            if (distanceSquared <= lodDistanceSquared * 4) return 2;
+            if (distanceSquared <= lodDistanceSquared * 16) return 4;
+            return 8;
+        }
+    }
+
+    /**
+     * Показ частиц одному игроку
+     */
+    public abstract static class Job {
+        final Player viewer;
+        final Location anchor;
+        final Key key;
+        final int period;
+        final int duration;
+        int age;
+        // Folia: задача этого показа
+        volatile TaskScheduler.Task task;
+        /**
+         * Кадр не уместился в бюджет: render вызывается и в следующем тике
+         */
+        protected boolean pending;
+
+        /**
+         * @param viewer Игрок, который видит частицы
+         * @param key Ключ региона и вида показа (один показ на ключ для игрока)
+         * @param period Интервал кадров в тиках
+         * @param duration Длительность в тиках
+         */
+        protected Job(Player viewer, Key key, int period, int duration) {
+            this(viewer, null, key, period, duration);
+        }
+
+        /**
+         * Показ нескольким игрокам: рассылку выполняет сам показ
+         * @param anchor Точка, рядом с которой находятся зрители (центр региона)
+         */
+        protected Job(Location anchor, Key key, int period, int duration) {
+            this(null, anchor, key, period, duration);
+        }
+
+        private Job(Player viewer, Location anchor, Key key, int period, int duration) {
+            this.viewer = viewer;
+            this.anchor = anchor;
+            this.key = key;
+            this.period = period;
+            this.duration = duration;
+        }
+
+        void stop() {
+            TaskScheduler.Task current = task;
+            if (current != null) {
+                current.cancel();
+                task = null;
+            }
+        }
+
+        /**
+         * Нарисовать кадр (или продолжить отложенный, если pending)
+         * @param age Тиков с начала показа
+         * @param frame Бюджет игрока на этот тик
+         */
+        protected abstract void render(int age, Frame frame);
+
+        /**
+         * Вызывается после последнего кадра
+         */
+        protected void finish() {
+        }
+    }
+
+    /**
+     * Ключ показа: мир и упакованные координаты центра региона с видом показа
+     */
+    public static final class Key {
+        private final UUID world;
+        private final long position;
+
+        public Key(UUID world, long position) {
+            this.world = world;
+            this.position = position;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return position == key.position && world.equals(key.world);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * world.hashCode() + Long.hashCode(position);
+        }
+    }
+}